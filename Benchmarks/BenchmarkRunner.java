@@ -0,0 +1,133 @@
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A minimal multi-threaded benchmark harness.
+ *
+ * The repo has no build file, so JMH cannot be pulled in; this harness covers the parts of
+ * JMH the benchmarks here need, with plain JDK classes:
+ * - all threads start together (a latch), run a warmup phase that is thrown away, then a
+ *   measured phase of fixed duration;
+ * - throughput is ops counted during the measured phase divided by its length;
+ * - latency is sampled on 1 of every 16 operations (timing every call with System.nanoTime()
+ *   would cost about as much as the counters being measured) into a per-thread
+ *   LatencyRecorder, merged after the run.
+ *
+ * Run with -XX:+UseParallelGC or -XX:+UseSerialGC and a fixed heap if you want GC noise out
+ * of the latency numbers.
+ */
+public class BenchmarkRunner {
+
+    // The benchmarked code. threadIndex is 0..threads-1, iteration counts up per thread, which
+    // lets an operation pick reads vs writes deterministically without a shared random.
+    @FunctionalInterface
+    public interface Operation {
+        void run(int threadIndex, long iteration);
+    }
+
+    public record Result(String name, int threads, long operations, double seconds,
+                         LatencyRecorder latency) {
+
+        public double opsPerSecond() {
+            return operations / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s threads=%-3d %,15.0f ops/s  %s",
+                    name, threads, opsPerSecond(), latency.summary());
+        }
+    }
+
+    private static final int LATENCY_SAMPLE_MASK = 15; // sample 1 op in 16
+
+    private static final int WARMUP = 0;
+    private static final int MEASURE = 1;
+    private static final int STOP = 2;
+
+    private final long warmupMillis;
+    private final long measureMillis;
+
+    public BenchmarkRunner(long warmupMillis, long measureMillis) {
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+    }
+
+    public Result run(String name, int threads, Operation operation) throws InterruptedException {
+        Phase phase = new Phase();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] opsPerThread = new long[threads];
+        LatencyRecorder[] recorders = new LatencyRecorder[threads];
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final int threadIndex = t;
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders[t] = recorder;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long iteration = 0;
+                long measuredOps = 0;
+                int current;
+                while ((current = phase.value) != STOP) {
+                    if ((iteration & LATENCY_SAMPLE_MASK) == 0 && current == MEASURE) {
+                        long t0 = System.nanoTime();
+                        operation.run(threadIndex, iteration);
+                        recorder.record(System.nanoTime() - t0);
+                    } else {
+                        operation.run(threadIndex, iteration);
+                    }
+                    iteration++;
+                    if (current == MEASURE) {
+                        measuredOps++;
+                    }
+                }
+                opsPerThread[threadIndex] = measuredOps;
+            }, name + "-" + t);
+            workers[t].start();
+        }
+
+        ready.await();
+        start.countDown();
+        Thread.sleep(warmupMillis);
+        long measureStart = System.nanoTime();
+        phase.value = MEASURE;
+        Thread.sleep(measureMillis);
+        phase.value = STOP;
+        long measureEnd = System.nanoTime();
+
+        LatencyRecorder merged = new LatencyRecorder();
+        long totalOps = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join(); // join() makes the per-thread results visible to this thread
+            totalOps += opsPerThread[t];
+            merged.merge(recorders[t]);
+        }
+        return new Result(name, threads, totalOps, (measureEnd - measureStart) / 1e9, merged);
+    }
+
+    // Thread counts 1, 2, 4, ... up to and including max
+    public static int[] threadCounts(int max) {
+        int n = 0;
+        for (int t = 1; t < max; t <<= 1) {
+            n++;
+        }
+        int[] counts = new int[n + 1];
+        for (int i = 0, t = 1; i < n; i++, t <<= 1) {
+            counts[i] = t;
+        }
+        counts[n] = max;
+        return counts;
+    }
+
+    // Written only by the driver thread; workers read it once per operation.
+    private static final class Phase {
+        volatile int value = WARMUP;
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+/**
+ * Shows how blocking CompletableFuture stages on the common ForkJoinPool slow down an unrelated
+ * parallel stream, and how AsyncExecutorPolicy.dedicated() avoids it.
+ *
+ * Usage: java CommonPoolStarvationBenchmark [concurrentFetches]
+ *
+ * For each policy, `concurrentFetches` AsyncDemo.fetchBalance() calls (300 ms of blocking
+ * each) are started, and while they are in flight a CPU-bound parallel stream is timed. With
+ * the common-pool policy the fetches occupy the pool's threads, so the stream runs on the
+ * calling thread with little or no help; with the dedicated policy it gets the whole pool.
+ * The fetches themselves also suffer: on the common pool they run a few at a time instead of
+ * all at once, so their total time grows from ~300 ms to (fetches / pool size) x 300 ms.
+ *
+ * Note: when the common pool has parallelism 1 (a 1-2 CPU machine), CompletableFuture does not
+ * use it at all. Run with -Djava.util.concurrent.ForkJoinPool.common.parallelism=4 (or more)
+ * on such machines to see the effect.
+ */
+public class CommonPoolStarvationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int fetches = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        System.out.printf("Parallel stream, %-30s%7.1f ms%n", "idle JVM:", timeParallelSum());
+
+        // The demo's "Fetching balance..." lines go nowhere: DROP, so logging never waits either
+        try (AsyncLogger quiet = new AsyncLogger(OutputStream.nullOutputStream(), 1024, AsyncLogger.FullPolicy.DROP)) {
+            try (AsyncExecutorPolicy commonPool = AsyncExecutorPolicy.commonPool()) {
+                run("common pool (old behaviour)", new AsyncDemo(commonPool, quiet), fetches);
+            }
+            try (AsyncExecutorPolicy dedicated = AsyncExecutorPolicy.dedicated()) {
+                run("dedicated executors", new AsyncDemo(dedicated, quiet), fetches);
+            }
+        }
+    }
+
+    private static void run(String label, AsyncDemo demo, int fetches) throws Exception {
+        long start = System.nanoTime();
+        List<CompletableFuture<Double>> inFlight = new ArrayList<>();
+        for (int i = 0; i < fetches; i++) {
+            inFlight.add(demo.fetchBalance(i));
+        }
+        double streamMillis = timeParallelSum(); // runs while the fetches are blocking
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+        double fetchMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("Parallel stream, %-30s%7.1f ms  (%d fetches done after %.0f ms)%n",
+                label + ":", streamMillis, fetches, fetchMillis);
+    }
+
+    // CPU-bound work that uses the common pool, like any parallel stream in the JVM would
+    private static double timeParallelSum() {
+        long start = System.nanoTime();
+        long sum = LongStream.range(0, 200_000_000L).parallel().map(x -> x * x % 7).sum();
+        double millis = (System.nanoTime() - start) / 1e6;
+        if (sum == 42) {
+            System.out.println(); // use the result so the JIT can't drop the stream
+        }
+        return millis;
+    }
+}
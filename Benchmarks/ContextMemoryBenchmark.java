@@ -0,0 +1,101 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Heap cost of per-request context at 1,000,000 live virtual threads: nothing, ThreadLocal,
+ * InheritableThreadLocal, and RequestContext (ScopedValue).
+ *
+ * Usage: java --enable-preview -Xmx4g ContextMemoryBenchmark [threads]
+ *
+ * Each variant starts `threads` virtual threads that bind the context and then wait on a
+ * latch, so they are all alive at once. With all of them parked, the heap is measured after a
+ * GC, and the "none" variant's heap is subtracted: what is left is the cost of the context
+ * mechanism alone. All threads share ONE context object, so its own size is not counted.
+ *
+ * - ThreadLocal: a ThreadLocalMap per thread (table of 16 slots + an Entry per variable).
+ * - InheritableThreadLocal: set once in the parent; each child copies the parent's map when
+ *   it is created, whether it reads the value or not.
+ * - ScopedValue: one small binding object per thread, shared immutable structure otherwise.
+ */
+public class ContextMemoryBenchmark {
+
+    private static final RequestContext CONTEXT = new RequestContext("req-1", "user-101");
+    private static final ThreadLocal<RequestContext> THREAD_LOCAL = new ThreadLocal<>();
+    private static final InheritableThreadLocal<RequestContext> INHERITABLE = new InheritableThreadLocal<>();
+
+    private interface Variant {
+        void runWithContext(Runnable body);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Variant none = Runnable::run;
+        Variant threadLocal = body -> {
+            THREAD_LOCAL.set(CONTEXT);
+            try {
+                body.run();
+            } finally {
+                THREAD_LOCAL.remove();
+            }
+        };
+        Variant scoped = CONTEXT::run;
+
+        // Warm up every variant first: interpreted frames are bigger than compiled ones, and
+        // a parked virtual thread keeps its frames on the heap, so an unwarmed run looks
+        // bigger for reasons that have nothing to do with the context
+        for (Variant variant : new Variant[] {none, threadLocal, scoped}) {
+            measure(threads / 4, variant);
+        }
+
+        long baseline = measure(threads, none);
+        report("ThreadLocal", threads, baseline, measure(threads, threadLocal));
+
+        INHERITABLE.set(CONTEXT); // copied into every thread started from now on
+        long inheritable = measure(threads, none);
+        INHERITABLE.remove();
+        report("InheritableThreadLocal", threads, baseline, inheritable);
+
+        report("ScopedValue", threads, baseline, measure(threads, scoped));
+        report("none (again)", threads, baseline, measure(threads, none)); // ~0: the noise level
+    }
+
+    // Starts the threads, waits until all are parked with their context bound, and returns
+    // the live heap at that point
+    private static long measure(int threads, Variant variant) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(threads);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] all = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            all[i] = Thread.ofVirtual().start(() -> variant.runWithContext(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        started.await();
+        long heap = liveHeap();
+        release.countDown();
+        for (Thread thread : all) {
+            thread.join();
+        }
+        return heap;
+    }
+
+    private static void report(String name, int threads, long baseline, long heap) {
+        System.out.printf("%-24s %,9d threads  +%,8.1f MB  (%,5.0f bytes per thread)%n",
+                name + ":", threads, (heap - baseline) / 1e6, (heap - baseline) / (double) threads);
+    }
+
+    private static long liveHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares every counter / lock strategy in Concurrency/ and Java_Memory_Model/ under the same
+ * harness (BenchmarkRunner): 1..N threads, and read/write mixes from write-only to 95% reads.
+ *
+ * Usage: java CounterBenchmark [maxThreads] [measureSeconds]
+ * Default maxThreads is twice the number of CPUs, so the oversubscribed case is covered too.
+ *
+ * Each operation is either increment() or getCount(). Reads don't need a "blackhole": every
+ * getCount() here goes through a volatile read or a lock, which the JIT is not allowed to remove.
+ */
+public class CounterBenchmark {
+
+    record Target(String name, Supplier<Counter> factory) {}
+
+    static List<Target> targets() {
+        return List.of(
+            new Target("SynchronizedCounterExample", SynchronizedCounterExample::new),
+            new Target("LockCounterExample", LockCounterExample::new),
+            new Target("AtomicCounterExample", AtomicCounterExample::new),
+            new Target("CounterWithLock", CounterWithLock::new),
+            new Target("CounterSolution1 (synchronized)", CounterSolution1::new),
+            new Target("CounterSolution2 (AtomicInteger)", CounterSolution2::new),
+            new Target("SynchronizedDemo.incrementMethod", () -> synchronizedDemo(false)),
+            new Target("SynchronizedDemo.incrementBlock", () -> synchronizedDemo(true)),
+            new Target("StripedCounter", StripedCounter::new),
+            new Target("StampedCounter (optimistic reads)", StampedCounter::new)
+        );
+    }
+
+    // SynchronizedDemo is not a Counter itself (it shows two locking styles on one field), so
+    // wrap each style. getCounter() locks 'this' in both cases; for the block variant that is a
+    // different lock than the writers use, which is fine for measuring but not for correctness.
+    private static Counter synchronizedDemo(boolean block) {
+        SynchronizedDemo demo = new SynchronizedDemo();
+        return new Counter() {
+            @Override
+            public void increment() {
+                if (block) {
+                    demo.incrementBlock();
+                } else {
+                    demo.incrementMethod();
+                }
+            }
+
+            @Override
+            public long getCount() {
+                return demo.getCounter();
+            }
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors() * 2;
+        long measureMillis = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 2000;
+        BenchmarkRunner runner = new BenchmarkRunner(1000, measureMillis);
+
+        // 95% reads is the read-mostly case (dashboards polling a counter) where
+        // StampedCounter's optimistic reads should pull ahead of CounterWithLock
+        int[] readPercents = {0, 50, 95};
+
+        for (int readPercent : readPercents) {
+            System.out.println("\n=== " + readPercent + "% reads / " + (100 - readPercent) + "% writes ===");
+            for (Target target : targets()) {
+                for (int threads : BenchmarkRunner.threadCounts(maxThreads)) {
+                    Counter counter = target.factory().get(); // fresh instance for every run
+                    BenchmarkRunner.Result result = runner.run(target.name(), threads,
+                        (threadIndex, iteration) -> {
+                            // Deterministic mix: out of every 100 ops, the first readPercent are reads
+                            if (iteration % 100 < readPercent) {
+                                counter.getCount();
+                            } else {
+                                counter.increment();
+                            }
+                        });
+                    System.out.println(result);
+                }
+            }
+        }
+    }
+}
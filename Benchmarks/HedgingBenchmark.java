@@ -0,0 +1,109 @@
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * p50/p99 of a CompletableFutureExample-style pipeline (three sources, combined), as is, with
+ * per-stage deadlines, and with hedged requests (AsyncPipelines).
+ *
+ * Usage: java HedgingBenchmark [requests] [slowPercent]
+ *
+ * Each source answers in 5-15 ms, except slowPercent% of the time when it takes 300 ms (a GC
+ * pause, a lost packet, a busy replica). With three sources per request, about 3 x slowPercent%
+ * of requests hit at least one slow reply, which is the whole p99 of the plain pipeline.
+ * Requests are started at a fixed rate (one every 2 ms) whatever the previous ones are doing.
+ *
+ * - deadlines: each source gets 50 ms, then a fallback value is used. p99 is capped near the
+ *   deadline, at the price of answers built from fallbacks.
+ * - hedged: a second request is sent after the source's p95 latency. p99 drops to about
+ *   p95 + a normal reply, with every answer real, for ~5% extra calls.
+ */
+public class HedgingBenchmark {
+
+    private static int slowPercent;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        slowPercent = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            run("plain", requests, () -> {
+                CompletableFuture<String> a = CompletableFuture.supplyAsync(() -> fetchUnchecked("A"), executor);
+                CompletableFuture<String> b = CompletableFuture.supplyAsync(() -> fetchUnchecked("B"), executor);
+                CompletableFuture<String> c = CompletableFuture.supplyAsync(() -> fetchUnchecked("C"), executor);
+                return a.thenCombine(b, String::concat).thenCombine(c, String::concat);
+            });
+
+            Duration deadline = Duration.ofMillis(50);
+            run("deadlines (50 ms)", requests, () -> {
+                CompletableFuture<String> a = AsyncPipelines.withDeadline(
+                        CompletableFuture.supplyAsync(() -> fetchUnchecked("A"), executor), deadline, () -> "a");
+                CompletableFuture<String> b = AsyncPipelines.withDeadline(
+                        CompletableFuture.supplyAsync(() -> fetchUnchecked("B"), executor), deadline, () -> "b");
+                CompletableFuture<String> c = AsyncPipelines.withDeadline(
+                        CompletableFuture.supplyAsync(() -> fetchUnchecked("C"), executor), deadline, () -> "c");
+                return a.thenCombine(b, String::concat).thenCombine(c, String::concat);
+            });
+
+            // One Hedger per source, each learning that source's latency
+            AsyncPipelines.Hedger hedgerA = new AsyncPipelines.Hedger(95, Duration.ofMillis(50), executor);
+            AsyncPipelines.Hedger hedgerB = new AsyncPipelines.Hedger(95, Duration.ofMillis(50), executor);
+            AsyncPipelines.Hedger hedgerC = new AsyncPipelines.Hedger(95, Duration.ofMillis(50), executor);
+            run("hedged (p95)", requests, () -> hedgerA.call(() -> fetch("A"))
+                    .thenCombine(hedgerB.call(() -> fetch("B")), String::concat)
+                    .thenCombine(hedgerC.call(() -> fetch("C")), String::concat));
+            System.out.printf("  hedges sent: %d of %d calls (%d won), hedge delay now %.1f ms%n",
+                    hedgerA.hedges() + hedgerB.hedges() + hedgerC.hedges(),
+                    hedgerA.calls() + hedgerB.calls() + hedgerC.calls(),
+                    hedgerA.hedgeWins() + hedgerB.hedgeWins() + hedgerC.hedgeWins(),
+                    hedgerA.hedgeDelayNanos() / 1e6);
+        }
+    }
+
+    private interface Pipeline {
+        CompletableFuture<String> start();
+    }
+
+    private static void run(String label, int requests, Pipeline pipeline) throws InterruptedException {
+        LatencyRecorder latency = new LatencyRecorder();
+        ReentrantLock lock = new ReentrantLock(); // completions arrive on many threads
+        CompletableFuture<?>[] all = new CompletableFuture<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            all[i] = pipeline.start().whenComplete((result, error) -> {
+                long elapsed = System.nanoTime() - start;
+                lock.lock();
+                try {
+                    latency.record(elapsed);
+                } finally {
+                    lock.unlock();
+                }
+            });
+            TimeUnit.MILLISECONDS.sleep(2);
+        }
+        CompletableFuture.allOf(all).join();
+        System.out.printf("%-20s p50=%6.1f ms  p99=%6.1f ms  max=%6.1f ms%n", label + ":",
+                latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.max() / 1e6);
+    }
+
+    // A remote source: usually fast, occasionally very slow
+    private static String fetch(String source) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean slow = random.nextInt(100) < slowPercent;
+        TimeUnit.MILLISECONDS.sleep(slow ? 300 : random.nextInt(5, 16));
+        return source;
+    }
+
+    private static String fetchUnchecked(String source) {
+        try {
+            return fetch(source);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching " + source, e);
+        }
+    }
+}
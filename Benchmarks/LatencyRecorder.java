@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A small log-linear latency histogram (the same idea as HdrHistogram, without the dependency).
+ *
+ * Values are nanoseconds. Every power-of-two range is split into 32 equal sub-buckets, so
+ * any recorded value is reported with at most ~3% error, from 1 ns up to Long.MAX_VALUE,
+ * using a fixed array of under 2,000 counters. Recording is one array increment: no
+ * allocation and no boxing, so it can sit inside a hot benchmark loop.
+ *
+ * A recorder is NOT thread-safe. Give every thread its own recorder and merge() them after
+ * the threads have been joined.
+ */
+public class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 32
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0; // System.nanoTime() differences can't be trusted to be positive on every platform
+        }
+        counts[indexOf(nanos)]++;
+        totalCount++;
+        sum += nanos;
+        if (nanos < min) {
+            min = nanos;
+        }
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    // Adds all samples of another recorder into this one
+    public void merge(LatencyRecorder other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long min() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    // Returns the value at the given percentile (0..100). The answer is the upper edge of the
+    // bucket holding that sample, capped at the largest value actually recorded.
+    public long percentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        rank = Math.max(1, Math.min(rank, totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+
+    // One-line summary used by the benchmark printers, e.g. "p50=41ns p99=230ns ..."
+    public String summary() {
+        return String.format("p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns",
+                percentile(50), percentile(90), percentile(99), percentile(99.9), max());
+    }
+
+    // Writes the percentile distribution in HdrHistogram's text format (.hgrm), which its
+    // online plotter and most latency tooling can read. Values are divided by unitNanos, e.g.
+    // 1e6 for milliseconds. Percentile steps halve the remaining tail each time (50, 75,
+    // 87.5, ...), with `ticksPerHalf` rows per halving.
+    public void writePercentiles(Writer out, double unitNanos, int ticksPerHalf) throws IOException {
+        out.write(String.format("%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+        if (totalCount > 0) {
+            for (int half = 0; half < 40; half++) {
+                double from = 100.0 * (1 - Math.pow(0.5, half));
+                double width = 100.0 * Math.pow(0.5, half + 1);
+                for (int tick = 0; tick < ticksPerHalf; tick++) {
+                    double percentile = from + width * tick / ticksPerHalf;
+                    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+                    writeRow(out, percentile(percentile), percentile / 100.0, rank, unitNanos);
+                }
+                if (totalCount * Math.pow(0.5, half + 1) < 1) {
+                    break; // less than one sample left beyond this point
+                }
+            }
+            writeRow(out, max(), 1.0, totalCount, unitNanos);
+        }
+        out.write(String.format("#[Mean    = %12.3f, Max         = %12.3f]%n", mean() / unitNanos, max() / unitNanos));
+        out.write(String.format("#[Total count = %d]%n", totalCount));
+        out.flush();
+    }
+
+    public void writePercentiles(Path file, double unitNanos) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            writePercentiles(out, unitNanos, 5);
+        }
+    }
+
+    private static void writeRow(Writer out, long value, double fraction, long count, double unitNanos)
+            throws IOException {
+        String inverse = fraction < 1.0 ? String.format("%14.2f", 1 / (1 - fraction)) : "";
+        out.write(String.format("%12.3f %2.12f %10d %s%n", value / unitNanos, fraction, count, inverse));
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * System.out.println against AsyncLogger, with 10,000 virtual-thread tasks logging at once.
+ *
+ * Usage: java LoggingBenchmark [tasks] [linesPerTask]
+ *
+ * Every task logs the line VirtualThreadExample prints ("Virtual Thread: Task N running on
+ * ..."). Both loggers write to a temporary file, so the terminal's speed doesn't decide the
+ * result:
+ * - println: a PrintStream set up like System.out (8 KB buffer, flushed on every println);
+ * - AsyncLogger with BLOCK (no line lost) and with DROP (callers never wait).
+ * The benchmark reports the wall time until every task has logged, and the latency of a log
+ * call as seen by the task (1 call in 16 is timed). With println, the calls queue up on the
+ * PrintStream lock, and each one pays for a write() system call while holding it.
+ */
+public class LoggingBenchmark {
+
+    private interface Logger {
+        void log(String template, Object arg1, Object arg2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        for (int round = 0; round < 2; round++) { // round 0 is warmup
+            boolean print = round == 1;
+
+            File file = File.createTempFile("println", ".log");
+            try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file), 8192), true)) {
+                run("println", tasks, lines, print,
+                        (template, arg1, arg2) -> out.println("Virtual Thread: Task " + arg1 + " running on " + arg2));
+            }
+            report(file, print);
+
+            for (AsyncLogger.FullPolicy policy : AsyncLogger.FullPolicy.values()) {
+                file = File.createTempFile("async", ".log");
+                AsyncLogger logger = new AsyncLogger(new FileOutputStream(file), 1 << 16, policy);
+                try (logger) {
+                    run("AsyncLogger " + policy, tasks, lines, print, logger::log);
+                }
+                if (print && logger.dropped() > 0) {
+                    System.out.printf("  %,d lines dropped%n", logger.dropped());
+                }
+                report(file, print);
+            }
+        }
+    }
+
+    private static void run(String name, int tasks, int lines, boolean print, Logger logger) {
+        long[] samples = new long[tasks * ((lines + 15) / 16)]; // task i writes only its own range
+        int samplesPerTask = samples.length / tasks;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < tasks; i++) {
+                int taskId = i;
+                executor.submit(() -> {
+                    String thread = Thread.currentThread().toString();
+                    for (int line = 0; line < lines; line++) {
+                        if ((line & 15) == 0) {
+                            long before = System.nanoTime();
+                            logger.log("Virtual Thread: Task {} running on {}", taskId, thread);
+                            samples[taskId * samplesPerTask + line / 16] = System.nanoTime() - before;
+                        } else {
+                            logger.log("Virtual Thread: Task {} running on {}", taskId, thread);
+                        }
+                    }
+                });
+            }
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        if (print) {
+            LatencyRecorder latency = new LatencyRecorder();
+            for (long sample : samples) {
+                latency.record(sample);
+            }
+            System.out.printf("%-22s %,9d lines in %8.1f ms   per call: %s%n",
+                    name + ":", (long) tasks * lines, millis, latency.summary());
+        }
+    }
+
+    private static void report(File file, boolean print) throws IOException {
+        if (print) {
+            System.out.printf("  %,d bytes written%n", file.length());
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * StreamsDemo's parallel sum (List<Integer>.parallelStream().mapToLong(i -> i * 2).sum())
+ * against the same computation over an int[], from 1e3 to 1e9 elements.
+ *
+ * Usage: java -Xmx6g PrimitivePipelineBenchmark [maxElements] [maxBoxedElements] [variant]
+ * Defaults are 1e8 and 1e7. 1e9 ints are 4 GB on their own; a List<Integer> of the same size
+ * would need about 20 GB (a 16-byte Integer plus a 4-byte reference per element), so the boxed
+ * variant stops at maxBoxedElements.
+ *
+ * Variants, all computing sum(i * 2), plus sum(i * 2) over the even values only:
+ * - boxed parallel:     the StreamsDemo shape, on a List<Integer>;
+ * - IntStream parallel: IntStream.of(array).parallel(), unboxed but through the stream machinery;
+ * - pipeline:           PrimitivePipeline.ofInts(array), sequential and parallel.
+ * SingleThreadRunner runs each until it has taken 0.5 s (at least 3 times) and the best run is
+ * reported, as ns per element. The results are checked against the closed form.
+ *
+ * Run each variant in its own JVM (pass a part of its name as `variant`, e.g. "pipeline par")
+ * for numbers you can quote. In one JVM, every lambda the earlier variants passed through a
+ * shared call site (LongConsumer.accept inside the pipeline, Sink.accept inside the stream
+ * library) is in that site's type profile, the JIT stops inlining it, and the later variants
+ * pay a virtual call per element: several times slower, for reasons that have nothing to do
+ * with the variant itself. This is what JMH's forks are for.
+ */
+public class PrimitivePipelineBenchmark {
+
+    private static SingleThreadRunner runner;
+
+    public static void main(String[] args) {
+        long maxElements = args.length > 0 ? (long) Double.parseDouble(args[0]) : 100_000_000L;
+        long maxBoxed = args.length > 1 ? (long) Double.parseDouble(args[1]) : 10_000_000L;
+        runner = new SingleThreadRunner(args.length > 2 ? args[2] : "", 3, 500);
+        if (maxElements > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("An int[] holds at most ~2.1e9 elements: " + maxElements);
+        }
+        System.out.printf("%d CPUs, max heap %,d MB%n%n", Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().maxMemory() >> 20);
+        System.out.printf("%14s  %-22s %12s %14s%n", "elements", "variant", "ns/element", "vs boxed");
+
+        for (long n = 1000; n <= maxElements; n *= 10) {
+            int size = (int) n;
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = i;
+            }
+            List<Integer> boxed = null;
+            if (n <= maxBoxed) {
+                boxed = new ArrayList<>(size);
+                for (int value : values) {
+                    boxed.add(value); // distinct Integer objects above 127, as in real data
+                }
+            }
+            List<Integer> list = boxed;
+
+            double boxedNanos = Double.NaN;
+            if (list != null) {
+                boxedNanos = run(n, "boxed parallel", Double.NaN,
+                        () -> list.parallelStream().mapToLong(i -> i * 2).sum());
+            }
+            run(n, "IntStream parallel", boxedNanos,
+                    () -> IntStream.of(values).parallel().asLongStream().map(i -> i * 2).sum());
+            run(n, "pipeline sequential", boxedNanos,
+                    () -> PrimitivePipeline.ofInts(values).map(i -> i * 2).sum());
+            run(n, "pipeline parallel", boxedNanos,
+                    () -> PrimitivePipeline.ofInts(values).parallel().map(i -> i * 2).sum());
+
+            double boxedFilterNanos = Double.NaN;
+            if (list != null) {
+                boxedFilterNanos = run(n, "boxed filter+map", Double.NaN,
+                        () -> list.parallelStream().filter(i -> (i & 1) == 0).mapToLong(i -> i * 2).sum());
+            }
+            run(n, "pipeline filter+map", boxedFilterNanos,
+                    () -> PrimitivePipeline.ofInts(values).parallel().filter(i -> (i & 1) == 0).map(i -> i * 2).sum());
+            System.out.println();
+        }
+    }
+
+    // Returns the best ns/element; checks the sum against the closed form on the way
+    private static double run(long n, String name, double boxedNanos, Supplier<Long> sum) {
+        if (!runner.selected(name)) {
+            return Double.NaN;
+        }
+        SingleThreadRunner.Measurement<Long> m = runner.measure(sum);
+        long expected = name.contains("filter") ? expectedEvenSum(n) : n * (n - 1);
+        if (m.result() != expected) {
+            throw new IllegalStateException(name + " returned " + m.result() + ", expected " + expected);
+        }
+        double nanosPerElement = (double) m.bestNanos() / n;
+        String speedup = Double.isNaN(boxedNanos) ? "" : String.format("%.1fx faster", boxedNanos / nanosPerElement);
+        System.out.printf("%,14d  %-22s %12.3f %14s%n", n, name, nanosPerElement, speedup);
+        return nanosPerElement;
+    }
+
+    // sum of 2 * i over the even i in [0, n): 2 * 2 * (0 + 1 + ... + (evens - 1))
+    private static long expectedEvenSum(long n) {
+        long evens = (n + 1) / 2;
+        return 2 * evens * (evens - 1);
+    }
+}
@@ -0,0 +1,71 @@
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * The single-threaded counterpart of BenchmarkRunner: times one piece of code, called from the
+ * benchmark's own thread, as the best of several runs.
+ *
+ * BenchmarkRunner measures throughput of many threads over a fixed time. The stream
+ * benchmarks (PrimitivePipelineBenchmark, StringJoinBenchmark, GroupingBenchmark) instead
+ * time one call that may take from microseconds to seconds, so here:
+ * - the code runs at least minRuns times, and until the runs add up to minMeasureMillis, and
+ *   the fastest run is reported (the earlier ones include JIT compilation);
+ * - the bytes allocated by the last run are read from the calling thread's allocation counter
+ *   (com.sun.management.ThreadMXBean). Allocations of other threads, e.g. the common pool's
+ *   during a parallel stream, are not included;
+ * - every result is written to a volatile field, so the JIT can't drop the measured code.
+ *
+ * A variant filter picks the variants to run: as JMH does with forks, running one variant per
+ * JVM keeps the type profiles of the others out of its shared call sites.
+ */
+public class SingleThreadRunner {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile Object sink;
+
+    public record Measurement<T>(long bestNanos, long allocatedBytes, T result) {
+
+        public double bestMillis() {
+            return bestNanos / 1e6;
+        }
+    }
+
+    private final String only;
+    private final int minRuns;
+    private final long minMeasureNanos;
+
+    // only: run only the variants whose name contains it ("" runs them all)
+    public SingleThreadRunner(String only, int minRuns, long minMeasureMillis) {
+        if (minRuns < 1) {
+            throw new IllegalArgumentException("minRuns must be at least 1: " + minRuns);
+        }
+        this.only = only;
+        this.minRuns = minRuns;
+        this.minMeasureNanos = minMeasureMillis * 1_000_000;
+    }
+
+    public boolean selected(String variant) {
+        return variant.contains(only);
+    }
+
+    // The result of the last run is returned, so the caller can check it
+    public <T> Measurement<T> measure(Supplier<T> code) {
+        long best = Long.MAX_VALUE;
+        long measured = 0;
+        long allocated = 0;
+        T result = null;
+        for (int run = 0; run < minRuns || measured < minMeasureNanos; run++) {
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            result = code.get();
+            long elapsed = System.nanoTime() - start;
+            allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            sink = result;
+            best = Math.min(best, elapsed);
+            measured += elapsed;
+        }
+        return new Measurement<>(best, allocated, result);
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.List;
+
+/**
+ * One-instruction critical sections (count++) under synchronized, ReentrantLock and
+ * AdaptiveSpinLock, from 1 thread up to 4x the number of CPUs.
+ *
+ * Usage: java SpinLockBenchmark [maxThreads] [measureSeconds]
+ *
+ * The oversubscribed runs (threads > CPUs) are the interesting ones for a spinning lock: the
+ * owner may be descheduled while others spin, so a lock that spins blindly loses there. The
+ * adaptive window and the park fallback are supposed to keep it at least level with
+ * ReentrantLock in that case, and ahead of it whenever threads <= CPUs.
+ */
+public class SpinLockBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : cpus * 4;
+        long measureMillis = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 2000;
+        BenchmarkRunner runner = new BenchmarkRunner(1000, measureMillis);
+
+        List<CounterBenchmark.Target> targets = List.of(
+            new CounterBenchmark.Target("synchronized", SynchronizedCounterExample::new),
+            new CounterBenchmark.Target("ReentrantLock", LockCounterExample::new),
+            new CounterBenchmark.Target("AdaptiveSpinLock", () -> new LockCounterExample(new AdaptiveSpinLock()))
+        );
+
+        System.out.println("CPUs: " + cpus);
+        for (int threads : BenchmarkRunner.threadCounts(maxThreads)) {
+            for (CounterBenchmark.Target target : targets) {
+                Counter counter = target.factory().get();
+                System.out.println(runner.run(target.name(), threads,
+                        (threadIndex, iteration) -> counter.increment()));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Joining n CSV rows into one payload: JavaStreamExample's old reduce() against
+ * Collectors.joining() and TextJoiner, from 1,000 to 1,000,000 rows.
+ *
+ * Usage: java StringJoinBenchmark [maxRows] [maxReduceRows] [variant]
+ * Defaults are 1e6 and 3e4: reduce() copies everything joined so far for every row, so at
+ * 1e5 rows of ~20 chars it already copies ~100 GB. Pass part of a variant name to run only
+ * that variant (see SingleThreadRunner).
+ *
+ * For every variant SingleThreadRunner reports the best time of 5 runs and the bytes allocated
+ * by one run (on the calling thread, so all variants are sequential here):
+ * - reduce:                  reduce("", (acc, row) -> acc + row + "\n");
+ * - Collectors.joining:      StringJoiner, builds a String;
+ * - TextJoiner.joining:      builds a String in one exactly-sized buffer;
+ * - TextJoiner -> Writer:    writes the rows out (to a null Writer), no String built;
+ * - TextJoiner -> ByteBuffer: encodes the rows as UTF-8 into a reused direct buffer.
+ * It also shows, once, what reduce() produces on a parallel stream.
+ */
+public class StringJoinBenchmark {
+
+    private static SingleThreadRunner runner;
+
+    public static void main(String[] args) {
+        int maxRows = args.length > 0 ? (int) Double.parseDouble(args[0]) : 1_000_000;
+        int maxReduceRows = args.length > 1 ? (int) Double.parseDouble(args[1]) : 30_000;
+        runner = new SingleThreadRunner(args.length > 2 ? args[2] : "", 5, 0);
+
+        List<String> sample = List.of("Alice", "Bob", "Charlie", "David", "Eve", "Frank");
+        System.out.println("Parallel reduce:     \"" + sample.parallelStream()
+                .reduce("", (acc, name) -> acc + name + " ") + "\"");
+        System.out.println("Parallel TextJoiner: \"" + sample.parallelStream()
+                .collect(TextJoiner.joining(" ")) + "\"");
+        System.out.println();
+
+        System.out.printf("%10s  %-26s %12s %16s%n", "rows", "variant", "best ms", "allocated");
+        for (int n = 1000; n <= maxRows; n *= 10) {
+            List<String> rows = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                rows.add(i + "," + sample.get(i % sample.size()) + "," + (i * 31 % 1000));
+            }
+            if (n <= maxReduceRows) {
+                run(n, "reduce", () -> rows.stream().reduce("", (acc, row) -> acc + row + "\n").length());
+            }
+            run(n, "Collectors.joining", () -> rows.stream().collect(Collectors.joining("\n")).length());
+            run(n, "TextJoiner.joining", () -> rows.stream().collect(TextJoiner.joining("\n")).length());
+            run(n, "TextJoiner -> Writer", () -> {
+                try {
+                    rows.stream().collect(TextJoiner.collecting("\n")).writeTo(Writer.nullWriter());
+                    return 0;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            ByteBuffer buffer = ByteBuffer.allocateDirect(n * 32);
+            run(n, "TextJoiner -> ByteBuffer", () -> {
+                buffer.clear();
+                rows.stream().collect(TextJoiner.collecting("\n")).writeTo(buffer, StandardCharsets.UTF_8);
+                return buffer.position();
+            });
+            System.out.println();
+        }
+    }
+
+    private static void run(int rows, String name, Supplier<Integer> join) {
+        if (!runner.selected(name)) {
+            return;
+        }
+        SingleThreadRunner.Measurement<Integer> m = runner.measure(join);
+        System.out.printf("%,10d  %-26s %12.2f %,16d%n", rows, name, m.bestMillis(), m.allocatedBytes());
+    }
+}
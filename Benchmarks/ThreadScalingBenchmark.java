@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Platform threads against virtual threads, from 1,000 to 1,000,000 tasks, for different
+ * amounts of blocking and CPU work per task.
+ *
+ * Usage: java ThreadScalingBenchmark [maxTasks] [poolSize] [maxSecondsPerRun]
+ *
+ * PlatformThreadExample runs its tasks on a fixed pool of 10 platform threads, VirtualThreadDemo
+ * on one virtual thread per task, and both only print the total wall time. Here each
+ * combination of (task count, blocking time, CPU time) runs on:
+ * - a fixed pool of poolSize platform threads (default 200, a typical server pool);
+ * - a virtual thread per task.
+ * For every run the benchmark reports:
+ * - throughput, in tasks completed per second;
+ * - per-task latency (submit to completion, so queueing in the pool counts) as p50/p99/max;
+ * - peak RSS of the process during the run (Linux, from /proc/self/status; "n/a" elsewhere);
+ * before the runs, the cost of creating, starting and joining one thread of each kind.
+ *
+ * What to look for, the crossover points:
+ * - blocking tasks: the pool finishes at most poolSize tasks per blocking time, so its
+ *   throughput is capped and latency grows with the queue; virtual threads keep going until
+ *   memory or the CPU run out;
+ * - CPU-only tasks: both are limited by the cores; virtual threads add a little scheduling
+ *   overhead and gain nothing;
+ * - the higher the blocking share, the smaller the task count at which virtual threads win.
+ *
+ * A run whose ideal duration on its executor exceeds maxSecondsPerRun (default 30) is skipped,
+ * with a "skipped" line in its place.
+ */
+public class ThreadScalingBenchmark {
+
+    private static final long[] BLOCK_MILLIS = {0, 1, 10};
+    private static final long[] CPU_MICROS = {0, 10, 100};
+
+    public static void main(String[] args) throws Exception {
+        int maxTasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long maxSeconds = args.length > 2 ? Long.parseLong(args[2]) : 30;
+        int cpus = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("Thread creation (start + join, 10,000 threads): platform %,.0f ns, virtual %,.0f ns%n%n",
+                creationNanos(Thread.ofPlatform().factory()), creationNanos(Thread.ofVirtual().factory()));
+
+        System.out.printf("%-14s %9s %6s %6s %14s %10s %10s %10s %10s%n",
+                "executor", "tasks", "block", "cpu", "tasks/s", "p50", "p99", "max", "peak RSS");
+        for (int tasks = 1_000; tasks <= maxTasks; tasks *= 10) {
+            for (long blockMillis : BLOCK_MILLIS) {
+                for (long cpuMicros : CPU_MICROS) {
+                    if (blockMillis == 0 && cpuMicros == 0) {
+                        continue; // an empty task measures nothing but the executor
+                    }
+                    // Ideal durations: the pool is limited by its threads (and the cores), the
+                    // virtual threads only by the cores
+                    double perTaskSeconds = blockMillis / 1e3 + cpuMicros / 1e6;
+                    double poolSeconds = Math.max(tasks * perTaskSeconds / poolSize,
+                            tasks * cpuMicros / 1e6 / cpus);
+                    double virtualSeconds = Math.max(blockMillis / 1e3, tasks * cpuMicros / 1e6 / cpus);
+
+                    int n = tasks;
+                    if (poolSeconds <= maxSeconds) {
+                        run("pool-" + poolSize, n, blockMillis, cpuMicros,
+                                () -> Executors.newFixedThreadPool(poolSize));
+                    } else {
+                        System.out.printf("%-14s %,9d %4dms %4dus   skipped (ideal run %.0f s)%n",
+                                "pool-" + poolSize, n, blockMillis, cpuMicros, poolSeconds);
+                    }
+                    if (virtualSeconds <= maxSeconds) {
+                        run("virtual", n, blockMillis, cpuMicros, Executors::newVirtualThreadPerTaskExecutor);
+                    } else {
+                        System.out.printf("%-14s %,9d %4dms %4dus   skipped (ideal run %.0f s)%n",
+                                "virtual", n, blockMillis, cpuMicros, virtualSeconds);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void run(String name, int tasks, long blockMillis, long cpuMicros,
+                            Supplier<ExecutorService> executors) throws InterruptedException {
+        System.gc();
+        TimeUnit.MILLISECONDS.sleep(200); // let the previous run's threads and garbage go
+
+        long[] latencies = new long[tasks]; // task i writes only slot i: no shared recorder
+        RssSampler rss = new RssSampler();
+        rss.start();
+        long start = System.nanoTime();
+        try (ExecutorService executor = executors.get()) {
+            for (int i = 0; i < tasks; i++) {
+                int task = i;
+                long submittedAt = System.nanoTime();
+                executor.execute(() -> {
+                    work(blockMillis, cpuMicros);
+                    latencies[task] = System.nanoTime() - submittedAt;
+                });
+            }
+        } // close() waits for every task
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peakRss = rss.stopAndGetPeak();
+
+        LatencyRecorder latency = new LatencyRecorder();
+        for (long nanos : latencies) {
+            latency.record(nanos);
+        }
+        System.out.printf("%-14s %,9d %4dms %4dus %,14.0f %8.1fms %8.1fms %8.1fms %10s%n",
+                name, tasks, blockMillis, cpuMicros, tasks / seconds,
+                latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.max() / 1e6,
+                peakRss < 0 ? "n/a" : peakRss / (1024 * 1024) + " MB");
+    }
+
+    private static void work(long blockMillis, long cpuMicros) {
+        if (cpuMicros > 0) {
+            long end = System.nanoTime() + cpuMicros * 1_000;
+            long x = 0;
+            while (System.nanoTime() < end) {
+                x = x * 31 + 1;
+            }
+            if (x == 42) {
+                System.out.println(); // use x so the loop can't be removed
+            }
+        }
+        if (blockMillis > 0) {
+            try {
+                Thread.sleep(blockMillis); // simulated I/O
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Average cost of creating, starting and joining a thread that does nothing: join() also
+    // counts the thread's exit, which a latch counted down by the task would leave out
+    private static double creationNanos(ThreadFactory factory) throws InterruptedException {
+        int count = 10_000;
+        Thread[] threads = new Thread[count];
+        double nanos = 0;
+        for (int round = 0; round < 3; round++) { // the first rounds are warmup
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                threads[i] = factory.newThread(() -> { });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            nanos = (System.nanoTime() - start) / (double) count;
+        }
+        return nanos;
+    }
+
+    // Samples VmRSS every 10 ms on a daemon thread and keeps the highest value. (VmHWM would
+    // give the peak for free, but it covers the whole life of the process, not one run.)
+    private static final class RssSampler extends Thread {
+        private static final Path STATUS = Path.of("/proc/self/status");
+        private volatile boolean running = true;
+        private volatile long peak = -1;
+
+        RssSampler() {
+            super("rss-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                peak = Math.max(peak, rssBytes());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long stopAndGetPeak() throws InterruptedException {
+            running = false;
+            join();
+            return Math.max(peak, rssBytes());
+        }
+
+        private static long rssBytes() {
+            try {
+                List<String> lines = Files.readAllLines(STATUS);
+                for (String line : lines) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("\\D", "")) * 1024; // reported in kB
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // not Linux
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+#!/bin/sh
+# Compiles the benchmarks, and the examples they measure, into out/ (see Benchmarks.txt).
+#
+# The examples are in the default package and most file names don't match their public
+# class, so javac can't compile the folders in place: every source is copied into a temporary
+# folder under the name of its public class (or its own name, made a valid identifier, if it
+# has none) and compiled from there.
+#
+# Usage, from anywhere:  Benchmarks/build.sh [--preview]
+# --preview also compiles RequestContext and ContextMemoryBenchmark, which use the ScopedValue
+# preview API of Java 21; everything must then be run with java --enable-preview.
+set -e
+
+cd "$(dirname "$0")/.."
+preview=false
+if [ "$1" = "--preview" ]; then
+    preview=true
+fi
+
+src=$(mktemp -d)
+trap 'rm -rf "$src"' EXIT
+
+for file in Concurrency/*.java Java_Memory_Model/*.java Lambda_Expressions/*.java \
+            Streams_API/*.java Virtual_Threads/*.java Benchmarks/*.java; do
+    case "$file" in
+        */RequestContext.java|*/ContextMemoryBenchmark.java)
+            [ "$preview" = true ] || continue ;;
+    esac
+    name=$(sed -n 's/^public \(final \|abstract \)*\(class\|interface\|record\|enum\) \([A-Za-z0-9_]*\).*/\3/p' "$file" | head -n 1)
+    if [ -z "$name" ]; then
+        name=$(basename "$file" .java | tr -c 'A-Za-z0-9_\n' '_')
+    fi
+    cp "$file" "$src/$name.java"
+done
+
+mkdir -p out
+if [ "$preview" = true ]; then
+    javac --release 21 --enable-preview -d out "$src"/*.java
+else
+    javac -d out "$src"/*.java
+fi
+echo "Compiled into out/. Run e.g.: java -cp out CounterBenchmark 64 5"
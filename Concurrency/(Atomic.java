@@ -1,15 +1,17 @@
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class AtomicCounterExample {
+public class AtomicCounterExample implements Counter {
     // AtomicInteger manages thread safety internally using CAS operations
     private final AtomicInteger count = new AtomicInteger(0);
 
+    @Override
     public void increment() {
         // This operation is performed atomically without explicit locks
         count.incrementAndGet();
     }
 
-    public int getCount() {
+    @Override
+    public long getCount() {
         return count.get();
     }
 
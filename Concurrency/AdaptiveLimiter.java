@@ -0,0 +1,267 @@
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limiter whose permit count follows the latency of the protected resource.
+ *
+ * SemaphoreDemo gives PrinterUser a fixed Semaphore(2). A fixed number is wrong most of the
+ * time: too high and the downstream gets overloaded (latency climbs, requests time out), too
+ * low and capacity sits unused. The right limit also moves as the downstream scales or slows.
+ *
+ * AdaptiveLimiter uses AIMD, the same rule TCP congestion control uses:
+ * - every release() reports how long the permit was held (the call's latency);
+ * - while latency stays within tolerance x the best latency seen recently (minimum RTT), the
+ *   limit grows by 1/limit per call, i.e. by about +1 per "round" of limit calls;
+ * - when latency exceeds that threshold (the downstream is queueing) or a call is reported as
+ *   dropped, the limit is multiplied by backoffRatio (e.g. 0.9).
+ * The limit stays within [minLimit, maxLimit]. Little's law (in-flight = throughput x latency)
+ * is why this works: once the downstream is saturated, more in-flight calls only add latency.
+ *
+ * Besides the adaptive limit:
+ * - acquire(timeout) gives up after a timeout, and the wait queue is bounded: when maxQueued
+ *   callers are already waiting, new callers are rejected immediately;
+ * - fair = true serves waiters in arrival order (a Condition per waiter), otherwise any waiter
+ *   may take a freed permit;
+ * - inFlight(), queued(), rejected(), timedOut() and limit() expose the current state.
+ */
+public class AdaptiveLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;     // latency above tolerance * minLatency means overload
+    private final double backoffRatio;  // multiplicative decrease
+    private final int maxQueued;
+    private final boolean fair;
+
+    private final ReentrantLock lock;
+    private final Condition permitAvailable;    // used when not fair
+    private final Deque<Condition> waitQueue = new ArrayDeque<>(); // used when fair
+
+    // Guarded by lock
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private long samplesSinceReset;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    // Forget the minimum latency every so often, so the limiter notices when the downstream
+    // became permanently slower (otherwise an old, too-low minimum would pin the limit down)
+    private static final long MIN_LATENCY_WINDOW = 1_000;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued, boolean fair) {
+        this(initialLimit, minLimit, maxLimit, maxQueued, fair, 2.0, 0.9);
+    }
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued, boolean fair,
+                           double tolerance, double backoffRatio) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Need 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        if (tolerance < 1.0 || backoffRatio <= 0 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException("Need tolerance >= 1 and 0 < backoffRatio < 1");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.fair = fair;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.lock = new ReentrantLock(fair);
+        this.permitAvailable = lock.newCondition();
+    }
+
+    // A held permit. Report how the call went through release() or dropped().
+    public final class Permit {
+        private final long acquiredAt = System.nanoTime();
+        private boolean released;
+
+        // The call completed normally: its latency feeds the limit
+        public void release() {
+            onRelease(this, false);
+        }
+
+        // The call failed because of overload (timeout, 503...): back off right away
+        public void dropped() {
+            onRelease(this, true);
+        }
+    }
+
+    // Waits up to timeout for a permit. Returns null if the queue is full (rejected) or the
+    // timeout elapsed.
+    public Permit acquire(Duration timeout) throws InterruptedException {
+        long remaining = timeout.toNanos();
+        lock.lockInterruptibly();
+        try {
+            if (inFlight < (int) limit && (!fair || waitQueue.isEmpty())) {
+                inFlight++;
+                return new Permit();
+            }
+            if (queued >= maxQueued) {
+                rejected.increment();
+                return null;
+            }
+            queued++;
+            Condition myTurn = fair ? lock.newCondition() : permitAvailable;
+            if (fair) {
+                waitQueue.addLast(myTurn);
+            }
+            try {
+                while (inFlight >= (int) limit || (fair && waitQueue.peekFirst() != myTurn)) {
+                    if (remaining <= 0) {
+                        timedOut.increment();
+                        return null;
+                    }
+                    remaining = myTurn.awaitNanos(remaining);
+                }
+                inFlight++;
+                return new Permit();
+            } finally {
+                queued--;
+                if (fair) {
+                    waitQueue.remove(myTurn);
+                    signalNext(); // the next in line may be able to go too (e.g. the limit grew)
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onRelease(Permit permit, boolean dropped) {
+        long latency = System.nanoTime() - permit.acquiredAt;
+        lock.lock();
+        try {
+            if (permit.released) {
+                throw new IllegalStateException("Permit released twice");
+            }
+            permit.released = true;
+            inFlight--;
+            updateLimit(latency, dropped);
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // AIMD. Runs with the lock held.
+    private void updateLimit(long latency, boolean dropped) {
+        if (++samplesSinceReset > MIN_LATENCY_WINDOW) {
+            minLatencyNanos = latency;
+            samplesSinceReset = 0;
+        }
+        minLatencyNanos = Math.min(minLatencyNanos, latency);
+        if (dropped || latency > tolerance * minLatencyNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight + 1 >= (int) limit) {
+            // Only grow while the limit is actually being used, otherwise an idle period
+            // would let it climb without any evidence the downstream can take more
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    // Runs with the lock held
+    private void signalNext() {
+        if (inFlight >= (int) limit) {
+            return;
+        }
+        if (fair) {
+            Condition next = waitQueue.peekFirst();
+            if (next != null) {
+                next.signal();
+            }
+        } else {
+            permitAvailable.signal();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long timedOut() {
+        return timedOut.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveLimiter[limit=" + limit() + ", inFlight=" + inFlight() + ", queued=" + queued()
+                + ", rejected=" + rejected() + ", timedOut=" + timedOut() + "]";
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // The "printer" can really serve 4 jobs at once; beyond that jobs queue up inside it
+        // and each one takes longer. The limiter starts at 2, like SemaphoreDemo, and finds 4.
+        int capacity = 4;
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 50, 100, true);
+        Semaphore printer = new Semaphore(capacity);
+
+        Thread[] users = new Thread[20];
+        for (int i = 0; i < users.length; i++) {
+            String name = "User-" + (i + 1);
+            users[i] = new Thread(() -> {
+                for (int job = 0; job < 50; job++) {
+                    try {
+                        Permit permit = limiter.acquire(Duration.ofSeconds(2));
+                        if (permit == null) {
+                            System.out.println(name + " gave up waiting for a printer.");
+                            continue;
+                        }
+                        printer.acquire(); // the printer's own internal queue
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextInt(5, 10));
+                        } finally {
+                            printer.release();
+                            permit.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+            users[i].start();
+        }
+        for (Thread user : users) {
+            user.join();
+        }
+        System.out.println("Printer capacity " + capacity + ", learned " + limiter);
+    }
+}
@@ -0,0 +1,242 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A cache of CompletableFuture values: concurrent misses share one load, entries expire after
+ * a TTL, can be refreshed in the background before they expire, and the size is bounded (LRU).
+ *
+ * Calling AsyncDemo.fetchBalance(101) from 100 requests at once means 100 backend calls for
+ * the same answer. With a plain "check map, else load, then put" cache it is still 100 calls,
+ * because they all miss before the first load finishes (a thundering herd). Here the cache
+ * stores the FUTURE, not the value: the first miss inserts the future of its load, and every
+ * concurrent caller gets that same future (single-flight).
+ *
+ * - ttl: an entry older than this is reloaded on the next get(), and callers wait for it.
+ * - refreshAhead: once an entry is older than (ttl - refreshAhead), a get() still returns the
+ *   current value immediately but starts ONE background reload. A hot key therefore never
+ *   expires in front of its callers. Use Duration.ZERO to disable.
+ * - maxSize: least recently used entries are evicted past this size. (W-TinyLFU admission, as
+ *   in Caffeine, protects better against scans; LRU keeps this class short.)
+ * - A failed load is not cached: the entry is removed and the next get() tries again.
+ * - Every caller gets its own copy() of the shared future, so one caller cancelling or
+ *   completing its future affects neither the entry nor the other callers.
+ *
+ * The LRU order needs a lock on every get(); it is held only for the map operations, never
+ * during a load.
+ */
+public class AsyncCache<K, V> {
+
+    private final Function<K, CompletableFuture<V>> loader;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final int maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries; // guarded by lock, in access order
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+
+    public record Stats(long hits, long misses, long loadSuccesses, long loadFailures,
+                        long refreshes, long evictions, double averageLoadMillis) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    private static final class Entry<V> {
+        final CompletableFuture<V> future;
+        volatile long loadedAt; // System.nanoTime() when the load completed, 0 while loading
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(CompletableFuture<V> future) {
+            this.future = future;
+        }
+
+        boolean isLoaded() {
+            return future.isDone() && !future.isCompletedExceptionally();
+        }
+    }
+
+    public AsyncCache(Function<K, CompletableFuture<V>> loader, int maxSize, Duration ttl,
+                      Duration refreshAhead) {
+        if (refreshAhead.compareTo(ttl) >= 0) {
+            throw new IllegalArgumentException("refreshAhead must be shorter than ttl");
+        }
+        this.loader = loader;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAheadNanos = refreshAhead.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > AsyncCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CompletableFuture<V> get(K key) {
+        long now = System.nanoTime();
+        Entry<V> entry;
+        boolean load = false;
+        lock.lock();
+        try {
+            entry = entries.get(key); // also moves the key to the most recently used end
+            if (entry == null || isExpired(entry, now)) {
+                entry = new Entry<>(new CompletableFuture<>());
+                entries.put(key, entry);
+                load = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (load) {
+            misses.increment();
+            startLoad(key, entry);
+        } else {
+            hits.increment(); // includes callers joining a load that is still running
+            if (entry.isLoaded() && now - entry.loadedAt > ttlNanos - refreshAheadNanos
+                    && refreshAheadNanos > 0 && entry.refreshing.compareAndSet(false, true)) {
+                refresh(key, entry);
+            }
+        }
+        return entry.future.copy(); // only startLoad() completes the entry's own future
+    }
+
+    // Drops the key; the next get() loads it again
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        long loads = loadSuccesses.sum() + loadFailures.sum();
+        return new Stats(hits.sum(), misses.sum(), loadSuccesses.sum(), loadFailures.sum(),
+                refreshes.sum(), evictions.sum(), loads == 0 ? 0 : totalLoadNanos.sum() / 1e6 / loads);
+    }
+
+    // A failed entry counts as expired too: it is normally removed before it fails, but a get()
+    // must never hand out a failure as a hit
+    private boolean isExpired(Entry<V> entry, long now) {
+        if (entry.future.isCompletedExceptionally()) {
+            return true;
+        }
+        return entry.isLoaded() && now - entry.loadedAt > ttlNanos;
+    }
+
+    // Loads into the entry's own future, which callers are already waiting on
+    private void startLoad(K key, Entry<V> entry) {
+        load(key).whenComplete((value, error) -> {
+            if (error != null) {
+                remove(key, entry); // don't cache failures
+                entry.future.completeExceptionally(error);
+            } else {
+                entry.loadedAt = System.nanoTime(); // before complete(), so no caller sees it "expired"
+                entry.future.complete(value);
+            }
+        });
+    }
+
+    // Background reload: callers keep getting the old entry until the new value is in
+    private void refresh(K key, Entry<V> stale) {
+        refreshes.increment();
+        load(key).whenComplete((value, error) -> {
+            if (error != null) {
+                stale.refreshing.set(false); // let a later get() try again
+                return;
+            }
+            Entry<V> fresh = new Entry<>(CompletableFuture.completedFuture(value));
+            fresh.loadedAt = System.nanoTime();
+            lock.lock();
+            try {
+                if (entries.get(key) == stale) { // not invalidated or replaced meanwhile
+                    entries.put(key, fresh);
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private CompletableFuture<V> load(K key) {
+        long start = System.nanoTime();
+        CompletableFuture<V> result;
+        try {
+            result = loader.apply(key);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, error) -> {
+            totalLoadNanos.add(System.nanoTime() - start);
+            if (error != null) {
+                loadFailures.increment();
+            } else {
+                loadSuccesses.increment();
+            }
+        });
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        lock.lock();
+        try {
+            entries.remove(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        AsyncDemo demo = new AsyncDemo();
+        AsyncCache<Integer, Double> balances = new AsyncCache<>(demo::fetchBalance, 10_000,
+                Duration.ofSeconds(1), Duration.ofMillis(500));
+
+        // 100 concurrent requests for the same hot account: one backend call
+        List<CompletableFuture<Double>> requests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            requests.add(balances.get(101));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+        System.out.println("After the burst: " + balances.stats());
+
+        // 600 ms later the entry is inside the refresh-ahead window: served at once, reloaded behind the scenes
+        Thread.sleep(600);
+        long start = System.nanoTime();
+        balances.get(101).join();
+        System.out.printf("Read inside refresh window took %.2f ms%n", (System.nanoTime() - start) / 1e6);
+        Thread.sleep(400); // let the background refresh finish
+        System.out.println("After refresh-ahead: " + balances.stats());
+    }
+}
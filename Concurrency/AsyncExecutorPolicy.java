@@ -0,0 +1,99 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which Executor runs each stage of a CompletableFuture pipeline.
+ *
+ * CompletableFuture.supplyAsync(supplier) without an executor runs on the common ForkJoinPool,
+ * which has only (CPUs - 1) threads and is shared by the whole JVM, including every parallel
+ * stream. AsyncDemo.fetchUserId() and fetchBalance() block in Thread.sleep() (standing in for
+ * a network call): a few hundred of them in flight occupy every common-pool thread, and an
+ * unrelated parallelStream().sum() elsewhere has to wait for them.
+ *
+ * The policy separates the two kinds of work:
+ * - blocking stages (I/O, sleeps) go to a virtual-thread-per-task executor: a blocked virtual
+ *   thread releases its carrier, so blocking costs no platform thread at all;
+ * - compute stages go to a bounded pool of CPU-count platform threads, so CPU work cannot
+ *   oversubscribe the machine;
+ * - any stage can be given its own executor by name (withStage), e.g. to isolate a slow
+ *   dependency so it can't take capacity from the others (bulkheading).
+ *
+ * A policy is immutable, so one can be shared as a default (AsyncDemo does): withStage returns
+ * a new policy with the extra stage and the same blocking/compute executors, and leaves the
+ * original as it was.
+ *
+ * commonPool() keeps the old behaviour, for comparison. close() shuts down the executors the
+ * policy created itself (not the ones passed to withStage); policies derived with withStage
+ * share them, so closing any one of them closes them for all.
+ */
+public class AsyncExecutorPolicy implements AutoCloseable {
+
+    private final Executor blocking;
+    private final Executor compute;
+    private final Map<String, Executor> stages;
+    private final List<ExecutorService> owned;
+
+    private AsyncExecutorPolicy(Executor blocking, Executor compute, Map<String, Executor> stages,
+                                List<ExecutorService> owned) {
+        this.blocking = blocking;
+        this.compute = compute;
+        this.stages = Map.copyOf(stages);
+        this.owned = List.copyOf(owned);
+    }
+
+    // The old behaviour: everything on the common ForkJoinPool
+    public static AsyncExecutorPolicy commonPool() {
+        return new AsyncExecutorPolicy(ForkJoinPool.commonPool(), ForkJoinPool.commonPool(), Map.of(), List.of());
+    }
+
+    // Virtual threads for blocking stages, CPU-count platform threads for compute stages
+    public static AsyncExecutorPolicy dedicated() {
+        return dedicated(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static AsyncExecutorPolicy dedicated(int computeThreads) {
+        ExecutorService blocking = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("async-io-", 0).factory());
+        ExecutorService compute = Executors.newFixedThreadPool(computeThreads, daemonThreads("async-cpu-"));
+        return new AsyncExecutorPolicy(blocking, compute, Map.of(), List.of(blocking, compute));
+    }
+
+    // A copy of this policy that runs the named stage on its own executor instead of the
+    // shared blocking/compute one
+    public AsyncExecutorPolicy withStage(String stage, Executor executor) {
+        Map<String, Executor> withStage = new HashMap<>(stages);
+        withStage.put(stage, executor);
+        return new AsyncExecutorPolicy(blocking, compute, withStage, owned);
+    }
+
+    public Executor blocking(String stage) {
+        return stages.getOrDefault(stage, blocking);
+    }
+
+    public Executor compute(String stage) {
+        return stages.getOrDefault(stage, compute);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService executor : owned) {
+            executor.shutdown();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger next = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + next.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,370 @@
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A logger whose callers never take a lock: messages go into a preallocated ring buffer and
+ * one background thread writes them out.
+ *
+ * System.out.println() holds the PrintStream's lock while it formats AND writes the line,
+ * so 10,000 tasks logging at once (VirtualThreadExample) take turns on that one lock, and the
+ * slow part, the write to the terminal or file, happens while holding it. (Since JDK 21 that
+ * lock is a ReentrantLock, so virtual threads waiting for it don't pin their carriers; they
+ * still wait in line.)
+ *
+ * AsyncLogger splits the work:
+ * - the caller claims a slot of the ring with one CAS (multi-producer), formats the message
+ *   into that slot's reusable StringBuilder, and publishes it (Dmitry Vyukov's bounded
+ *   queue: each slot carries a sequence number that says whose turn it is);
+ * - a single writer thread (single consumer) copies published slots into a buffered
+ *   Writer, and flushes whenever the ring runs empty.
+ * In the steady state nothing is allocated per message: the slots and their builders are
+ * created once, and "{}" placeholders are filled with append(long) etc., not String.format.
+ *
+ * When the ring is full (the writer can't keep up), the FullPolicy decides:
+ * - BLOCK: the caller waits for a free slot. No message is lost; logging slows the caller
+ *   down only when the output really is the bottleneck.
+ * - DROP: the message is discarded and counted; the writer prints "[n messages dropped]".
+ *   Callers are never slowed down by logging.
+ *
+ * Lines from one thread stay in order; lines from different threads are in claim order.
+ * Messages are written at most ~1 ms after log() returns, and close() writes everything
+ * still in the ring. Unlike println, a message may not be visible yet when log() returns.
+ *
+ * A claimed slot is always published, even if an argument's toString() throws (the line
+ * then reads "[format failed: ...]"): an unpublished slot would stop the writer for good. If
+ * the writer thread dies (an IOException from the output), log() throws IllegalStateException
+ * instead of waiting for a slot that will never be freed.
+ *
+ * log() after close() throws IllegalStateException. A log() call already past that check
+ * when close() runs still gets its line out: if the writer thread ended without writing it,
+ * the calling thread writes it itself.
+ */
+public class AsyncLogger implements AutoCloseable {
+
+    public enum FullPolicy { BLOCK, DROP }
+
+    private static final int INITIAL_SLOT_CAPACITY = 256;
+    private static final int DEFAULT_STDOUT_CAPACITY = 4096;
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static AsyncLogger stdout;
+
+    private final int mask;
+    private final StringBuilder[] slots;
+    // sequences[i] == position: slot i is free for the producer claiming `position`;
+    // sequences[i] == position + 1: slot i holds the message for `position`, ready to write
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // next position to claim (producers)
+    private long head;                                // next position to write (writer thread only)
+
+    private final FullPolicy fullPolicy;
+    private final Writer out;
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile Throwable failure; // why the writer thread stopped, if it died
+
+    private final LongAdder dropped = new LongAdder();
+    private long droppedReported; // writer thread only
+    private char[] chunk = new char[INITIAL_SLOT_CAPACITY]; // writer thread, then lateWrites
+    private final ReentrantLock lateWrites = new ReentrantLock(); // lines written after the writer ended
+    private final LongAdder written = new LongAdder();
+
+    // capacity is rounded up to a power of two
+    public AsyncLogger(OutputStream target, int capacity, FullPolicy fullPolicy) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new StringBuilder[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new StringBuilder(INITIAL_SLOT_CAPACITY);
+            sequences.set(i, i);
+        }
+        this.fullPolicy = fullPolicy;
+        this.out = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16);
+        this.writer = new Thread(this::drain, "async-logger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // A shared logger on standard output (BLOCK), closed at JVM exit. It writes to file
+    // descriptor 1 directly, bypassing System.out and its lock. Each slot keeps a 256-char
+    // builder, so the default 4096 slots are about 1 MB; -Dasynclogger.capacity=N changes it.
+    public static synchronized AsyncLogger stdout() {
+        if (stdout == null) {
+            int capacity = Integer.getInteger("asynclogger.capacity", DEFAULT_STDOUT_CAPACITY);
+            AsyncLogger logger = new AsyncLogger(new FileOutputStream(FileDescriptor.out), capacity, FullPolicy.BLOCK);
+            Runtime.getRuntime().addShutdownHook(new Thread(logger::close, "async-logger-shutdown"));
+            stdout = logger;
+        }
+        return stdout;
+    }
+
+    public void log(String message) {
+        long position = claim();
+        if (position >= 0) {
+            try {
+                slots[(int) position & mask].append(message);
+            } finally {
+                publish(position);
+            }
+        }
+    }
+
+    // "{}" placeholders are replaced by the arguments in order. Overloads instead of varargs,
+    // so that no Object[] is allocated per call.
+    public void log(String template, Object arg) {
+        long position = claim();
+        if (position >= 0) {
+            StringBuilder slot = slots[(int) position & mask];
+            try {
+                int from = appendUntilPlaceholder(slot, template, 0);
+                from = appendArg(slot, template, from, arg);
+                slot.append(template, from, template.length());
+            } catch (RuntimeException e) {
+                formatFailed(slot, template, e);
+            } finally {
+                publish(position);
+            }
+        }
+    }
+
+    public void log(String template, Object arg1, Object arg2) {
+        long position = claim();
+        if (position >= 0) {
+            StringBuilder slot = slots[(int) position & mask];
+            try {
+                int from = appendUntilPlaceholder(slot, template, 0);
+                from = appendArg(slot, template, from, arg1);
+                from = appendUntilPlaceholder(slot, template, from);
+                from = appendArg(slot, template, from, arg2);
+                slot.append(template, from, template.length());
+            } catch (RuntimeException e) {
+                formatFailed(slot, template, e);
+            } finally {
+                publish(position);
+            }
+        }
+    }
+
+    public void log(String template, Object arg1, Object arg2, Object arg3) {
+        long position = claim();
+        if (position >= 0) {
+            StringBuilder slot = slots[(int) position & mask];
+            try {
+                int from = appendUntilPlaceholder(slot, template, 0);
+                from = appendArg(slot, template, from, arg1);
+                from = appendUntilPlaceholder(slot, template, from);
+                from = appendArg(slot, template, from, arg2);
+                from = appendUntilPlaceholder(slot, template, from);
+                from = appendArg(slot, template, from, arg3);
+                slot.append(template, from, template.length());
+            } catch (RuntimeException e) {
+                formatFailed(slot, template, e);
+            } finally {
+                publish(position);
+            }
+        }
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    // Writes everything logged so far and stops the writer thread
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        awaitWriterExit();
+    }
+
+    private void awaitWriterExit() {
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Claims the next position, or returns -1 if the ring is full and the policy is DROP.
+    // The slot's sequence is not touched until publish(), so the writer won't read it early.
+    private long claim() {
+        if (closed) {
+            throw new IllegalStateException("Logger is closed");
+        }
+        checkWriter();
+        long parkNanos = 1_000;
+        while (true) {
+            long position = tail.get();
+            long sequence = sequences.getAcquire((int) position & mask);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[(int) position & mask].setLength(0);
+                    return position;
+                }
+            } else if (sequence < position) {
+                // The slot still holds the message from one lap ago: the ring is full
+                if (fullPolicy == FullPolicy.DROP) {
+                    dropped.increment();
+                    return -1;
+                }
+                if (!writer.isAlive()) { // a writer that ended, or died, never frees the slot
+                    checkWriter();
+                    throw new IllegalStateException("Logger is closed");
+                }
+                LockSupport.parkNanos(parkNanos); // BLOCK: give the writer time to catch up
+                parkNanos = Math.min(parkNanos * 2, MAX_IDLE_PARK_NANOS);
+            }
+            // else: another producer claimed this position first, try the next one
+        }
+    }
+
+    private void checkWriter() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Log writer thread failed", cause);
+        }
+    }
+
+    private void publish(long position) {
+        slots[(int) position & mask].append('\n');
+        sequences.setRelease((int) position & mask, position + 1);
+        if (closed) {
+            writeIfOrphaned(position); // claimed while close() ran: the writer may be gone already
+        }
+    }
+
+    // Waits for the writer thread to end, and writes the line itself if the writer ended before
+    // reaching it (it saw tail == head just before this position was claimed)
+    private void writeIfOrphaned(long position) {
+        awaitWriterExit();
+        checkWriter();
+        // head is written by the writer thread only, which has ended: join() makes it visible
+        if (position < head) {
+            return;
+        }
+        lateWrites.lock();
+        try {
+            write(slots[(int) position & mask]);
+            written.increment();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lateWrites.unlock();
+        }
+    }
+
+    private void drain() {
+        long parkNanos = 1_000;
+        try {
+            while (true) {
+                int index = (int) head & mask;
+                if (sequences.getAcquire(index) == head + 1) {
+                    write(slots[index]);
+                    sequences.setRelease(index, head + mask + 1); // free for the next lap
+                    head++;
+                    written.increment();
+                    parkNanos = 1_000;
+                    continue;
+                }
+                // Ring empty (or the next slot is still being formatted)
+                reportDropped();
+                out.flush();
+                if (closed && tail.get() == head) {
+                    return;
+                }
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_IDLE_PARK_NANOS);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    // Copies through a reusable char[]: Writer.append(CharSequence) would make a String
+    private void write(StringBuilder message) throws IOException {
+        int length = message.length();
+        if (chunk.length < length) {
+            chunk = new char[Math.max(length, chunk.length * 2)];
+        }
+        message.getChars(0, length, chunk, 0);
+        out.write(chunk, 0, length);
+    }
+
+    private void reportDropped() throws IOException {
+        long total = dropped.sum();
+        if (total > droppedReported) {
+            out.append("[").append(Long.toString(total - droppedReported)).append(" messages dropped]\n");
+            droppedReported = total;
+        }
+    }
+
+    // Replaces whatever was formatted so far; the exception's class only, since its message
+    // could come from the same broken toString()
+    private static void formatFailed(StringBuilder slot, String template, RuntimeException e) {
+        slot.setLength(0);
+        slot.append("[format failed: ").append(template).append(" (").append(e.getClass().getName()).append(")]");
+    }
+
+    private static int appendUntilPlaceholder(StringBuilder slot, String template, int from) {
+        int placeholder = template.indexOf("{}", from);
+        if (placeholder < 0) {
+            slot.append(template, from, template.length());
+            return template.length();
+        }
+        slot.append(template, from, placeholder);
+        return placeholder;
+    }
+
+    // Appends arg in place of the "{}" at `from` (if there is one) and returns where the rest
+    // of the template starts
+    private static int appendArg(StringBuilder slot, String template, int from, Object arg) {
+        if (!template.startsWith("{}", from)) {
+            return from;
+        }
+        if (arg instanceof Integer i) {
+            slot.append(i.intValue()); // digits written straight into the builder, no String
+        } else if (arg instanceof Long l) {
+            slot.append(l.longValue());
+        } else if (arg instanceof CharSequence s) {
+            slot.append(s);
+        } else {
+            slot.append(arg);
+        }
+        return from + 2;
+    }
+}
@@ -0,0 +1,188 @@
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Helpers that keep one slow dependency from setting the latency of a whole CompletableFuture
+ * pipeline.
+ *
+ * In CompletableFutureExample the thenCombine/allOf result is only as fast as the slowest
+ * source. With many sources (or many requests), a rare slow reply from any of them becomes
+ * the common case for the pipeline: the p99 of the whole is set by the tails of its parts.
+ *
+ * - withDeadline(stage, deadline, fallback): the stage gets a time budget of its own. If it
+ *   has not finished by then (or fails), the fallback value is used and the pipeline moves on.
+ *   Good for optional data: a default, a cached or partial answer.
+ * - Hedger: sends the same request a second time if the first has not answered within the
+ *   p-th percentile of recent latencies (e.g. p95), keeps whichever reply comes first and
+ *   cancels (interrupts) the other. Only the slowest ~5% of requests are duplicated, so the
+ *   extra load is small, while a stuck request no longer sets the caller's latency. Only
+ *   hedge requests that are safe to send twice (reads, idempotent writes).
+ */
+public final class AsyncPipelines {
+
+    private AsyncPipelines() {
+    }
+
+    // Completes with the stage's value, or with fallback.get() if the stage fails or is not
+    // done within the deadline. A stage that missed its deadline is cancelled, so stages
+    // depending on it are not run for nothing. The cancel does not interrupt anything: the
+    // work behind the stage (a supplyAsync task, a remote call) keeps running until it ends.
+    public static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> stage, Duration deadline,
+                                                        Supplier<? extends T> fallback) {
+        return stage.copy() // the timeout completes the copy; the stage itself is only cancelled
+                .orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS)
+                .exceptionally(error -> {
+                    if (error instanceof TimeoutException) {
+                        stage.cancel(false);
+                    }
+                    return fallback.get();
+                });
+    }
+
+    /**
+     * Sends hedged requests. One Hedger per dependency: the hedge delay is learned from that
+     * dependency's own latencies.
+     */
+    public static final class Hedger {
+
+        // Recompute the percentile from a fresh window every so often, so the hedge delay
+        // follows the dependency when it gets faster or slower
+        private static final int WINDOW = 1_000;
+        private static final int MIN_SAMPLES = 20;
+
+        private final double percentile;
+        private final ExecutorService executor;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LatencyRecorder latencies = new LatencyRecorder(); // guarded by lock
+        private long hedgeDelayNanos;                                    // guarded by lock
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+
+        // Until MIN_SAMPLES latencies have been seen, initialDelay is used as the hedge delay.
+        // The executor must run each attempt on its own thread (e.g. virtual threads) and
+        // support cancel(true), so that a losing attempt can be interrupted.
+        public Hedger(double percentile, Duration initialDelay, ExecutorService executor) {
+            if (percentile <= 0 || percentile >= 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+            }
+            this.percentile = percentile;
+            this.executor = executor;
+            this.hedgeDelayNanos = initialDelay.toNanos();
+        }
+
+        public <T> CompletableFuture<T> call(Callable<T> request) {
+            calls.increment();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            List<Future<?>> attempts = new CopyOnWriteArrayList<>();
+            AtomicInteger running = new AtomicInteger();
+
+            // Whoever completes the result first wins; interrupt the attempts still running
+            result.whenComplete((value, error) -> attempts.forEach(attempt -> attempt.cancel(true)));
+
+            start(request, result, attempts, running, false);
+            CompletableFuture.delayedExecutor(hedgeDelayNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (!result.isDone()) {
+                    hedges.increment();
+                    start(request, result, attempts, running, true);
+                }
+            });
+            return result;
+        }
+
+        public long hedgeDelayNanos() {
+            lock.lock();
+            try {
+                return hedgeDelayNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long calls() {
+            return calls.sum();
+        }
+
+        // How many calls sent a second request
+        public long hedges() {
+            return hedges.sum();
+        }
+
+        // How many calls were answered by the second request
+        public long hedgeWins() {
+            return hedgeWins.sum();
+        }
+
+        // Every attempt ends in complete() or in failed(), whatever it throws (an Error
+        // included), so the result cannot be left incomplete
+        private <T> void start(Callable<T> request, CompletableFuture<T> result,
+                               List<Future<?>> attempts, AtomicInteger running, boolean hedge) {
+            running.incrementAndGet();
+            Future<?> attempt;
+            try {
+                attempt = executor.submit(() -> {
+                    long start = System.nanoTime();
+                    T value;
+                    try {
+                        value = request.call();
+                    } catch (Throwable e) {
+                        if (result.isDone()) {
+                            // Interrupted as the loser. Its time so far is a lower bound of its
+                            // latency; recording it keeps the percentile from only seeing winners.
+                            record(System.nanoTime() - start);
+                        } else {
+                            failed(result, running, e);
+                        }
+                        return;
+                    }
+                    record(System.nanoTime() - start);
+                    if (result.complete(value) && hedge) {
+                        hedgeWins.increment();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                failed(result, running, e);
+                return;
+            }
+            attempts.add(attempt);
+            if (result.isDone()) {
+                attempt.cancel(true); // started just as the call finished
+            }
+        }
+
+        private static void failed(CompletableFuture<?> result, AtomicInteger running, Throwable error) {
+            if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(error); // no other attempt left to wait for
+            }
+        }
+
+        private void record(long nanos) {
+            lock.lock();
+            try {
+                latencies.record(nanos);
+                if (latencies.count() >= MIN_SAMPLES) {
+                    hedgeDelayNanos = latencies.percentile(percentile);
+                }
+                if (latencies.count() >= WINDOW) {
+                    latencies.reset();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-key lookups into bulk lookups (the "DataLoader" pattern).
+ *
+ * Every AsyncDemo.fetchBalance(userId) call is its own round trip. Fanning out to a thousand
+ * users means a thousand round trips, even though the backend could answer all of them in
+ * one (AsyncDemo.fetchBalances).
+ *
+ * load(key) returns a CompletableFuture right away and puts the key in the current batch.
+ * The batch is sent as ONE bulk call when it reaches maxBatchSize, or maxDelay after its
+ * first key arrived, whichever comes first. When the bulk result arrives, every caller's
+ * future is completed with its own value.
+ *
+ * A key that is already waiting or being loaded is not requested again: the caller waits on
+ * the same load as the first caller (in-flight de-duplication). Every caller gets its own
+ * copy() of that load's future, so one caller cancelling or completing its future affects
+ * neither the other callers nor the batch. Once the load finishes the key is forgotten; this
+ * is not a cache (see AsyncCache for that).
+ */
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    private final Function<Set<K>, CompletableFuture<Map<K, V>>> bulkLoader;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    // Every key that is waiting in a batch or being loaded, with the future its callers share
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // Guarded by lock. ReentrantLock rather than synchronized, so that virtual threads calling
+    // load() never pin their carrier thread.
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<K, CompletableFuture<V>> batch = new LinkedHashMap<>();
+    private long batchNumber;
+    private boolean closed;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "batch-loader-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder requestedKeys = new LongAdder();
+    private final LongAdder dedupedKeys = new LongAdder();
+    private final LongAdder bulkCalls = new LongAdder();
+
+    public BatchLoader(Function<Set<K>, CompletableFuture<Map<K, V>>> bulkLoader,
+                       int maxBatchSize, Duration maxDelay) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1: " + maxBatchSize);
+        }
+        this.bulkLoader = bulkLoader;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    // Throws IllegalStateException after close(), except for a key still in flight
+    public CompletableFuture<V> load(K key) {
+        requestedKeys.increment();
+        CompletableFuture<V> existing = inFlight.get(key);
+        if (existing != null) {
+            dedupedKeys.increment();
+            return existing.copy();
+        }
+
+        Map<K, CompletableFuture<V>> full = null;
+        CompletableFuture<V> future;
+        lock.lock();
+        try {
+            // Re-check under the lock: another caller may have added the key meanwhile
+            future = inFlight.get(key);
+            if (future != null) {
+                dedupedKeys.increment();
+                return future.copy();
+            }
+            if (closed) { // checked before the key is added anywhere: the timer is shut down
+                throw new IllegalStateException("BatchLoader is closed");
+            }
+            future = new CompletableFuture<>();
+            inFlight.put(key, future);
+            batch.put(key, future);
+            if (batch.size() == 1) {
+                // First key of a new batch: make sure it leaves within maxDelay
+                long number = batchNumber;
+                timer.schedule(() -> dispatchIfStill(number), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+            if (batch.size() >= maxBatchSize) {
+                full = takeBatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            dispatch(full); // outside the lock: the bulk loader may be slow to return its future
+        }
+        return future.copy(); // only dispatch() completes the future in inFlight and the batch
+    }
+
+    // Sends the current batch right away, without waiting for the timer
+    public void flush() {
+        Map<K, CompletableFuture<V>> pending;
+        lock.lock();
+        try {
+            pending = batch.isEmpty() ? null : takeBatch();
+        } finally {
+            lock.unlock();
+        }
+        if (pending != null) {
+            dispatch(pending);
+        }
+    }
+
+    public long requestedKeys() {
+        return requestedKeys.sum();
+    }
+
+    public long dedupedKeys() {
+        return dedupedKeys.sum();
+    }
+
+    public long bulkCalls() {
+        return bulkCalls.sum();
+    }
+
+    // Sends the current batch; later load() calls for new keys fail
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flush();
+        timer.shutdown();
+    }
+
+    // Timer callback: only dispatch if the batch it was scheduled for hasn't left yet
+    private void dispatchIfStill(long number) {
+        Map<K, CompletableFuture<V>> pending = null;
+        lock.lock();
+        try {
+            if (batchNumber == number && !batch.isEmpty()) {
+                pending = takeBatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (pending != null) {
+            dispatch(pending);
+        }
+    }
+
+    // Runs with the lock held
+    private Map<K, CompletableFuture<V>> takeBatch() {
+        Map<K, CompletableFuture<V>> taken = batch;
+        batch = new LinkedHashMap<>();
+        batchNumber++;
+        return taken;
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> pending) {
+        bulkCalls.increment();
+        CompletableFuture<Map<K, V>> result;
+        try {
+            result = bulkLoader.apply(Collections.unmodifiableSet(pending.keySet()));
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((values, error) -> {
+            for (Map.Entry<K, CompletableFuture<V>> entry : pending.entrySet()) {
+                K key = entry.getKey();
+                CompletableFuture<V> future = entry.getValue();
+                inFlight.remove(key, future); // forget before completing: later loads go to the backend again
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else if (values.containsKey(key)) {
+                    future.complete(values.get(key));
+                } else {
+                    future.completeExceptionally(new NoSuchElementException("No value loaded for key " + key));
+                }
+            }
+        });
+    }
+
+    public static void main(String[] args) {
+        AsyncDemo demo = new AsyncDemo();
+        try (BatchLoader<Integer, Double> balances =
+                     new BatchLoader<>(demo::fetchBalances, 100, Duration.ofMillis(5))) {
+
+            // 1000 lookups over 300 distinct users: 300 keys to load, 700 duplicates
+            List<CompletableFuture<Double>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                results.add(balances.load(i % 300));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+
+            System.out.println("Lookups: " + balances.requestedKeys()
+                    + ", de-duplicated: " + balances.dedupedKeys()
+                    + ", bulk round trips: " + balances.bulkCalls()); // 1000, 700, 3
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Batches increments per thread and publishes them to a shared counter in bulk.
+ *
+ * ConcurrencyExamples.incrementReentrantLockCounter() and incrementSynchronizedCounter() take
+ * a lock for every single ++. For metrics-style counting (millions of events per second, where
+ * nobody needs the exact value at every instant) that lock is the entire cost.
+ *
+ * Here each thread adds into its own pending count, which only that thread increments, so
+ * there is no contention and no lock. The pending count is handed to the publisher (which
+ * takes the real lock once for the whole batch) when:
+ * - the thread has accumulated batchSize increments,
+ * - the flush interval elapses (a background daemon thread flushes every thread's batch), or
+ * - flush() / flushAll() / close() is called explicitly.
+ *
+ * getCount() reads only the published value, so it lags behind by at most
+ * (batchSize - 1) increments per thread, and by at most one flush interval in time.
+ * That is the "bounded staleness" trade: cheap writes in exchange for a slightly old read.
+ */
+public final class BatchingCounter implements Counter, AutoCloseable {
+
+    private final LongConsumer publisher;      // adds a whole batch to the shared counter
+    private final LongSupplier publishedValue; // reads the shared counter
+    private final int batchSize;
+    private final ScheduledExecutorService flusher; // null when there is no time-based flush
+
+    // Every thread's batch, so that flushAll() and the timer can reach batches of threads that
+    // went idle before filling their batch.
+    private final Set<Batch> batches = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger registeredSincePrune = new AtomicInteger();
+    private final ThreadLocal<Batch> localBatch;
+
+    public BatchingCounter(LongConsumer publisher, LongSupplier publishedValue,
+                           int batchSize, Duration flushInterval) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        }
+        this.publisher = publisher;
+        this.publishedValue = publishedValue;
+        this.batchSize = batchSize;
+        this.localBatch = ThreadLocal.withInitial(this::register);
+        if (flushInterval != null && !flushInterval.isZero()) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "batching-counter-flusher");
+                t.setDaemon(true); // must never keep the JVM alive on its own
+                return t;
+            });
+            long nanos = flushInterval.toNanos();
+            flusher.scheduleAtFixedRate(this::flushAll, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    @Override
+    public void increment() {
+        Batch batch = localBatch.get();
+        // Only this thread increments its batch, so the atomic add is never contended; it is
+        // atomic only because the flusher thread may take the batch at the same moment.
+        if (batch.pending.incrementAndGet() >= batchSize) {
+            publish(batch);
+        }
+    }
+
+    // Published value only: may lag by up to (batchSize - 1) per thread or one flush interval
+    @Override
+    public long getCount() {
+        return publishedValue.getAsLong();
+    }
+
+    // Publishes the calling thread's pending increments
+    public void flush() {
+        publish(localBatch.get());
+    }
+
+    // Publishes every thread's pending increments, and forgets batches of threads that are gone
+    public void flushAll() {
+        for (Batch batch : batches) {
+            publish(batch);
+        }
+        pruneDeadThreads();
+    }
+
+    // Stops the background flusher and publishes whatever is still pending
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flushAll();
+    }
+
+    private void publish(Batch batch) {
+        long n = batch.pending.getAndSet(0);
+        if (n > 0) {
+            publisher.accept(n); // one lock acquisition for n increments
+        }
+    }
+
+    // With a thread per task, threads come and go faster than a timer may run (or there is no
+    // timer at all), so registering also drops dead threads' batches. Only once as many threads
+    // have registered as there are batches: the scan then costs O(1) per registration.
+    private Batch register() {
+        if (registeredSincePrune.incrementAndGet() >= batches.size()) {
+            registeredSincePrune.set(0);
+            pruneDeadThreads();
+        }
+        Batch batch = new Batch(Thread.currentThread());
+        batches.add(batch);
+        return batch;
+    }
+
+    private void pruneDeadThreads() {
+        for (Batch batch : batches) {
+            if (!batch.owner.isAlive()) {
+                batches.remove(batch);
+                publish(batch); // the owner is dead, but its last increments may still be pending
+            }
+        }
+    }
+
+    private static final class Batch {
+        final Thread owner;
+        final AtomicLong pending = new AtomicLong();
+
+        Batch(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrencyExamples examples = new ConcurrencyExamples();
+
+        // Each batch of 100 increments takes the ReentrantLock once instead of 100 times
+        try (BatchingCounter counter = new BatchingCounter(
+                n -> examples.addReentrantLockCounter((int) n),
+                examples::getReentrantLockCounter,
+                100, Duration.ofMillis(50))) {
+
+            Runnable task = () -> {
+                for (int i = 0; i < 1050; i++) {
+                    counter.increment();
+                }
+            };
+            Thread t1 = new Thread(task);
+            Thread t2 = new Thread(task);
+            t1.start();
+            t2.start();
+            t1.join();
+            t2.join();
+
+            // Each thread publishes a batch every 100 increments, and the 50 ms timer may also have
+            // published partial batches in between, so this is anything from 2000 to 2100
+            System.out.println("Published before flush: " + counter.getCount());
+            Thread.sleep(100); // let the 50 ms timer publish the leftovers
+            System.out.println("Published after timer: " + counter.getCount()); // 2100
+        }
+    }
+}
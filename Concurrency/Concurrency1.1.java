@@ -1,12 +1,13 @@
 // Example 1: ReentrantLock vs. synchronized and volatile
 
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class ConcurrencyExamples {
 
     // Shared resource for ReentrantLock example
     private int reentrantLockCounter = 0;
-    private final ReentrantLock reentrantLock = new ReentrantLock();
+    private final Lock reentrantLock;
 
     // Shared resource for Synchronized example
     private int synchronizedCounter = 0;
@@ -14,6 +15,17 @@ public class ConcurrencyExamples {
 
     // Shared resource for Volatile example
     private volatile boolean running = true;
+    // Wakes the volatile worker as soon as running is cleared (see StopSignal)
+    private final StopSignal stopSignal = new StopSignal();
+
+    public ConcurrencyExamples() {
+        this(new ReentrantLock());
+    }
+
+    // Any Lock works, e.g. an InstrumentedLock to see how contended the counter is
+    public ConcurrencyExamples(Lock reentrantLock) {
+        this.reentrantLock = reentrantLock;
+    }
 
     // Method using ReentrantLock
     // ReentrantLock:
@@ -31,6 +43,25 @@ public class ConcurrencyExamples {
         }
     }
 
+    // Adds a whole batch under one lock acquisition (see BatchingCounter)
+    public void addReentrantLockCounter(int delta) {
+        reentrantLock.lock();
+        try {
+            reentrantLockCounter += delta;
+        } finally {
+            reentrantLock.unlock();
+        }
+    }
+
+    public int getReentrantLockCounter() {
+        reentrantLock.lock();
+        try {
+            return reentrantLockCounter;
+        } finally {
+            reentrantLock.unlock();
+        }
+    }
+
     // Method using synchronized keyword
     // synchronized:
     // Uses the synchronized keyword on a method or a block of code.
@@ -43,6 +74,19 @@ public class ConcurrencyExamples {
         }
     }
 
+    // Adds a whole batch under one lock acquisition (see BatchingCounter)
+    public void addSynchronizedCounter(int delta) {
+        synchronized (synchronizedLock) {
+            synchronizedCounter += delta;
+        }
+    }
+
+    public int getSynchronizedCounter() {
+        synchronized (synchronizedLock) {
+            return synchronizedCounter;
+        }
+    }
+
     // Method to stop a thread using volatile
     // volatile:
     // Applied to a variable, ensuring that changes to its value are immediately visible to 
@@ -53,19 +97,24 @@ public class ConcurrencyExamples {
     // demonstrated by the running flag.
     public void stopRunning() {
         running = false; // Changes are immediately visible to other threads
+        stopSignal.stop(); // ...and the worker is woken up to see them right away
     }
 
     // Method that runs while 'running' is true
+    // Instead of polling the flag from a Thread.sleep(10) loop (up to 10 ms to notice the stop,
+    // and 100 useless wakeups per second while idle), the worker parks until stopRunning()
+    // unparks it.
     public void doVolatileWork() {
         while (running) {
-            // Simulate some work
             try {
-                Thread.sleep(10);
+                stopSignal.awaitStop();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                return;
             }
         }
-        System.out.println("Volatile thread stopped.");
+        System.out.printf("Volatile thread stopped %.3f ms after the stop signal.%n",
+                stopSignal.maxSignalLatencyNanos() / 1e6);
     }
 
     public static void main(String[] args) throws InterruptedException {
@@ -89,7 +138,7 @@ public class ConcurrencyExamples {
         reentrantLockThread2.join();
         System.out.println("ReentrantLock Counter: " + examples.reentrantLockCounter);
 
-        Synchronized Example
+        // Synchronized Example
         Thread synchronizedThread1 = new Thread(() -> {
             for (int i = 0; i < 1000; i++) {
                 examples.incrementSynchronizedCounter();
@@ -11,10 +11,11 @@ public class CountDownLatchDemo {
         new Thread(new Worker(latch, "Worker-2")).start();
         new Thread(new Worker(latch, "Worker-3")).start();
 
-        System.out.println("Main thread waiting for workers to complete initialization...");
+        // All lines go through AsyncLogger, so the workers' lines and main's stay in order
+        AsyncLogger.stdout().log("Main thread waiting for workers to complete initialization...");
         // Main thread waits until the latch's count reaches zero
         latch.await();
-        System.out.println("All workers have completed initialization. Main thread can now proceed.");
+        AsyncLogger.stdout().log("All workers have completed initialization. Main thread can now proceed.");
     }
 }
 
@@ -30,9 +31,9 @@ class Worker implements Runnable {
     @Override
     public void run() {
         try {
-            System.out.println(name + " is starting initialization.");
+            AsyncLogger.stdout().log("{} is starting initialization.", name);
             Thread.sleep((long) (Math.random() * 2000)); // Simulate work
-            System.out.println(name + " has completed initialization.");
+            AsyncLogger.stdout().log("{} has completed initialization.", name);
             latch.countDown(); // Decrement the latch's count
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -4,6 +4,7 @@ public class SemaphoreDemo {
 
     public static void main(String[] args) {
         // Initialize Semaphore with 2 permits, allowing 2 threads to access concurrently
+        // (a fixed count; AdaptiveLimiter learns the count from observed latency instead)
         Semaphore semaphore = new Semaphore(2);
 
         // Create and start 5 threads trying to access the "printer"
@@ -25,11 +26,11 @@ class PrinterUser implements Runnable {
     @Override
     public void run() {
         try {
-            System.out.println(name + " is trying to acquire a printer permit.");
+            AsyncLogger.stdout().log("{} is trying to acquire a printer permit.", name);
             semaphore.acquire(); // Acquire a permit, blocks if no permits are available
-            System.out.println(name + " has acquired a permit and is printing.");
+            AsyncLogger.stdout().log("{} has acquired a permit and is printing.", name);
             Thread.sleep((long) (Math.random() * 3000)); // Simulate printing
-            System.out.println(name + " has finished printing and releasing the permit.");
+            AsyncLogger.stdout().log("{} has finished printing and releasing the permit.", name);
             semaphore.release(); // Release the permit
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -1,44 +1,97 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 class AsyncDemo {
+    // Shared default: virtual threads for the blocking fetches, never the common ForkJoinPool
+    private static final AsyncExecutorPolicy DEFAULT_EXECUTORS = AsyncExecutorPolicy.dedicated();
+
+    // Which executor runs each stage (see AsyncExecutorPolicy)
+    private final AsyncExecutorPolicy executors;
+
+    // The stages log from pool and virtual threads at once (see AsyncLogger)
+    private final AsyncLogger log;
+
+    public AsyncDemo() {
+        this(DEFAULT_EXECUTORS);
+    }
+
+    public AsyncDemo(AsyncExecutorPolicy executors) {
+        this(executors, AsyncLogger.stdout());
+    }
+
+    // A benchmark can pass a logger with a null target, so the demo's lines neither show up in
+    // its output nor cost a terminal write
+    public AsyncDemo(AsyncExecutorPolicy executors, AsyncLogger log) {
+        this.executors = executors;
+        this.log = log;
+    }
+
     // Task 1: Fetch user ID (simulates API call)
+    // Blocking work: passing an executor keeps the sleep off the common ForkJoinPool, which
+    // parallel streams and every executor-less supplyAsync in the JVM share.
     public CompletableFuture<Integer> fetchUserId() {
-        return CompletableFuture.supplyAsync(() -> {
-            System.out.println("T1: Fetching User ID...");
+        return CompletableFuture.supplyAsync(StageTracer.supplier("fetchUserId", () -> {
+            log.log("T1: Fetching User ID...");
             try { Thread.sleep(500); } catch (InterruptedException ignored) {}
             return 101; 
-        });
+        }), executors.blocking("fetchUserId"));
     }
 
     // Task 2: Fetch user balance using the ID from Task 1
     public CompletableFuture<Double> fetchBalance(int userId) {
-        return CompletableFuture.supplyAsync(() -> {
-            System.out.println("T2: Fetching balance for user " + userId + "...");
+        return CompletableFuture.supplyAsync(StageTracer.supplier("fetchBalance.supply", () -> {
+            log.log("T2: Fetching balance for user {}...", userId);
             try { Thread.sleep(300); } catch (InterruptedException ignored) {}
             return ThreadLocalRandom.current().nextDouble(1000.0, 5000.0);
-        });
+        }), executors.blocking("fetchBalance"));
+    }
+
+    // Task 2, bulk version: one round trip for many users (used by BatchLoader)
+    public CompletableFuture<Map<Integer, Double>> fetchBalances(Set<Integer> userIds) {
+        return CompletableFuture.supplyAsync(() -> {
+            log.log("T2: Fetching balances for {} users...", userIds.size());
+            try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+            Map<Integer, Double> balances = new HashMap<>();
+            for (Integer userId : userIds) {
+                balances.put(userId, ThreadLocalRandom.current().nextDouble(1000.0, 5000.0));
+            }
+            return balances;
+        }, executors.blocking("fetchBalances"));
     }
 
     public void runAsync() {
-        System.out.println("Starting CompletableFuture pipeline...");
-
-        // 1. Start T1 (fetchUserId)
-        CompletableFuture<Void> finalResult = fetchUserId()
-            // 2. Chain T2: When T1 completes, take its result (ID) and run T2 (fetchBalance)
-            .thenCompose(this::fetchBalance) 
-            // 3. Chain final action: When T2 completes, accept its result (Balance) and print
-            .thenAccept(balance -> {
-                System.out.printf("T3: Final Balance Received: $%.2f%n", balance);
-            })
-            // 4. Handle errors anywhere in the chain
-            .exceptionally(ex -> {
-                System.err.println("Error in pipeline: " + ex.getMessage());
-                return null;
-            });
-        
-        // Wait for the final asynchronous task to complete (in a real app, main thread wouldn't wait)
-        finalResult.join(); 
-        System.out.println("CompletableFuture pipeline finished.");
+        log.log("Starting CompletableFuture pipeline...");
+
+        // Every stage below records its queue delay, execution time and thread (see StageTracer)
+        StageTracer.Span trace = StageTracer.start("runAsync");
+        try (trace) {
+            // 1. Start T1 (fetchUserId)
+            CompletableFuture<Double> balance = fetchUserId()
+                // 2. Chain T2: When T1 completes, take its result (ID) and run T2 (fetchBalance)
+                .thenCompose(StageTracer.compose("fetchBalance", this::fetchBalance));
+
+            // 3. Format the balance: CPU-only work, so it goes to the compute pool (CPU-count
+            //    platform threads) rather than to a blocking executor or the common pool.
+            //    (StageTracer.thenApplyAsync is thenApplyAsync that also measures the queue delay.)
+            CompletableFuture<Void> finalResult = StageTracer.thenApplyAsync(balance, "formatBalance",
+                    (Double value) -> String.format("%.2f", value), executors.compute("formatBalance"))
+                // 4. Chain final action: When the balance is formatted, accept it and print
+                .thenAccept(StageTracer.consumer("printBalance", formatted -> {
+                    log.log("T3: Final Balance Received: ${}", formatted);
+                }))
+                // 5. Handle errors anywhere in the chain
+                .exceptionally(ex -> {
+                    System.err.println("Error in pipeline: " + ex.getMessage());
+                    return null;
+                });
+
+            // Wait for the final asynchronous task to complete (in a real app, main thread wouldn't wait)
+            finalResult.join();
+        }
+        log.log("CompletableFuture pipeline finished.");
+        log.log(trace.exportTree().stripTrailing());
     }
 }
@@ -1,5 +1,7 @@
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -7,16 +9,22 @@ import java.util.function.Supplier;
 
 public class CompletableFutureExample {
 
+    // Every task below logs from a pool or virtual thread (see AsyncLogger)
+    private static final AsyncLogger LOG = AsyncLogger.stdout();
+
     public static void main(String[] args) throws ExecutionException, InterruptedException {
 
-        System.out.println("Starting CompletableFuture demonstration...");
+        LOG.log("Starting CompletableFuture demonstration...");
+
+        // Records queue delay, execution time and thread of the traced stages (see StageTracer)
+        StageTracer.Span trace = StageTracer.start("CompletableFutureExample");
 
         // 1. supplyAsync: Run a task asynchronously and return a result
         // supplyAsync(Supplier<T> supplier): Creates a CompletableFuture that runs a 
         // Supplier asynchronously and returns its result.
 
-        CompletableFuture<String> future1 = CompletableFuture.supplyAsync(() -> {
-            System.out.println("Task 1: Fetching data from Source A...");
+        CompletableFuture<String> future1 = CompletableFuture.supplyAsync(StageTracer.supplier("Source A", () -> {
+            LOG.log("Task 1: Fetching data from Source A...");
             try {
                 // Simulate delay
                 TimeUnit.SECONDS.sleep(ThreadLocalRandom.current().nextInt(1, 3)); 
@@ -24,49 +32,49 @@ public class CompletableFutureExample {
                 Thread.currentThread().interrupt();
             }
             return "Data from Source A";
-        });
+        }));
 
         // 2. thenApply: Transform the result of a CompletableFuture
         // thenApply(Function<? super T, ? extends U> fn): Transforms the result of the 
         // current CompletableFuture with a given function, returning a new CompletableFuture 
         // with the transformed result.
-        CompletableFuture<String> future2 = future1.thenApply(resultA -> {
-            System.out.println("Task 2: Processing " + resultA);
+        CompletableFuture<String> future2 = future1.thenApply(StageTracer.function("Process A", resultA -> {
+            LOG.log("Task 2: Processing {}", resultA);
             return resultA.toUpperCase();
-        });
+        }));
 
         // 3. thenCompose: Chain dependent CompletableFutures
         // thenCompose(Function<? super T, ? extends CompletionStage<U>> fn): Chains 
         // two CompletableFutures where the second CompletableFuture depends on the result 
         // of the first. The function passed to thenCompose returns a new CompletionStage.
         CompletableFuture<String> future3 = 
-            future2.thenCompose(processedA -> CompletableFuture.supplyAsync(() -> {
-            System.out.println("Task 3: Fetching related data based on " + processedA);
+            future2.thenCompose(StageTracer.compose("Source B", processedA -> CompletableFuture.supplyAsync(StageTracer.supplier("Source B.supply", () -> {
+            LOG.log("Task 3: Fetching related data based on {}", processedA);
             try {
                 TimeUnit.SECONDS.sleep(ThreadLocalRandom.current().nextInt(1, 3));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
             return processedA + " + Data from Source B";
-        }));
+        }))));
 
         // 4. thenCombine: Combine results of two independent CompletableFutures
         // thenCombine(
         // CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn): 
         // Combines the results of two independent CompletableFutures using a BiFunction, 
         // returning a new CompletableFuture with the combined result.
-        CompletableFuture<String> future4 = CompletableFuture.supplyAsync(() -> {
-            System.out.println("Task 4: Fetching data from Source C...");
+        CompletableFuture<String> future4 = CompletableFuture.supplyAsync(StageTracer.supplier("Source C", () -> {
+            LOG.log("Task 4: Fetching data from Source C...");
             try {
                 TimeUnit.SECONDS.sleep(ThreadLocalRandom.current().nextInt(1, 3));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
             return "Data from Source C";
-        }).thenCombine(future3, (resultC, combinedAB) -> {
-            System.out.println("Task 5: Combining " + resultC + " and " + combinedAB);
+        })).thenCombine(future3, StageTracer.biFunction("Combine", (resultC, combinedAB) -> {
+            LOG.log("Task 5: Combining {} and {}", resultC, combinedAB);
             return "Final Result: " + combinedAB + " | " + resultC;
-        });
+        }));
 
         // 5. exceptionally: Handle exceptions
         // (Function<Throwable, ? extends T> fn) explain: see the Concurrency.txt
@@ -75,7 +83,7 @@ public class CompletableFutureExample {
         // the provided function is executed, and its result becomes the result of the 
         // CompletableFuture.
         CompletableFuture<String> futureWithError = CompletableFuture.supplyAsync(() -> {
-            System.out.println("Task with Error: Simulating an error...");
+            LOG.log("Task with Error: Simulating an error...");
             if (true) { // Always throws for demonstration
                 throw new RuntimeException("Something went wrong!");
             }
@@ -93,23 +101,28 @@ public class CompletableFutureExample {
         CompletableFuture<Void> allOfFutures = CompletableFuture.allOf(future4, futureWithError);
 
         // Wait for all futures to complete and print results
-        allOfFutures.join(); // Blocks until all futures are complete
+        try {
+            allOfFutures.join(); // Blocks until all futures are complete
+        } finally {
+            trace.close(); // even if join() throws, so the trace doesn't stay current on main
+        }
 
-        System.out.println("\nAll tasks completed. Retrieving results:");
-        System.out.println("Future 4 Result: " + future4.get());
-        System.out.println("Future with Error Result: " + futureWithError.get());
+        LOG.log("\nAll tasks completed. Retrieving results:");
+        LOG.log("Future 4 Result: {}", future4.get());
+        LOG.log("Future with Error Result: {}", futureWithError.get());
+        LOG.log("\nStage timings:\n{}", trace.exportTree().stripTrailing());
 
         // 7. runAsync: Execute a Runnable asynchronously (no return value)
         // runAsync(Runnable runnable): Creates a CompletableFuture that runs a Runnable 
         // asynchronously without returning any result.
         CompletableFuture<Void> runAsyncFuture = CompletableFuture.runAsync(() -> {
-            System.out.println("Task 6: Running a background task without return value...");
+            LOG.log("Task 6: Running a background task without return value...");
             try {
                 TimeUnit.SECONDS.sleep(1);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
-            System.out.println("Task 6 completed.");
+            LOG.log("Task 6 completed.");
         });
         // join() and get(): Both methods wait for the CompletableFuture to complete. 
         // join() throws an unchecked CompletionException if the computation completes exceptionally, 
@@ -118,6 +131,34 @@ public class CompletableFutureExample {
         // exceptions via exceptionally().
         runAsyncFuture.join(); // Wait for it to complete
 
-        System.out.println("CompletableFuture demonstration finished.");
+        // 8. Deadlines and hedged requests (see AsyncPipelines)
+        // future4 above waits for the slowest of its sources. withDeadline() gives a stage a time
+        // budget with a fallback value; a Hedger sends a second request when the first is slower
+        // than usual and keeps the first reply. HedgingBenchmark compares p50/p99 of the three.
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<String> sourceC = AsyncPipelines.withDeadline(
+                    CompletableFuture.supplyAsync(() -> {
+                        LOG.log("Task 7: Fetching data from Source C with a 1.5 s deadline...");
+                        try {
+                            TimeUnit.SECONDS.sleep(ThreadLocalRandom.current().nextInt(1, 3));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "Data from Source C";
+                    }, executor),
+                    Duration.ofMillis(1500), () -> "Cached data from Source C");
+
+            AsyncPipelines.Hedger hedger = new AsyncPipelines.Hedger(95, Duration.ofMillis(1500), executor);
+            CompletableFuture<String> sourceA = hedger.call(() -> {
+                LOG.log("Task 8: Fetching data from Source A (hedged after 1.5 s)...");
+                TimeUnit.SECONDS.sleep(ThreadLocalRandom.current().nextInt(1, 3));
+                return "Data from Source A";
+            });
+
+            LOG.log("Deadline/hedged result: {}", sourceA.thenCombine(sourceC, (a, c) -> a + " | " + c).join());
+            LOG.log("Hedges sent: {}", hedger.hedges());
+        }
+
+        LOG.log("CompletableFuture demonstration finished.");
     }
 }
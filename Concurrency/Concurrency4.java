@@ -2,11 +2,21 @@
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class LockCounterExample {
+public class LockCounterExample implements Counter {
     private int count = 0;
+    private final Lock lock;
+
     // Create a ReentrantLock instance
-    private final Lock lock = new ReentrantLock();
+    public LockCounterExample() {
+        this(new ReentrantLock());
+    }
+
+    // Any Lock works, e.g. an InstrumentedLock to see how contended this counter is
+    public LockCounterExample(Lock lock) {
+        this.lock = lock;
+    }
 
+    @Override
     public void increment() {
         // Acquire the lock
         lock.lock();
@@ -19,7 +29,8 @@ public class LockCounterExample {
         }
     }
 
-    public int getCount() {
+    @Override
+    public long getCount() {
         return count;
     }
 
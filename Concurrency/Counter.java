@@ -0,0 +1,16 @@
+// Common contract for every counter demo in Concurrency/ and Java_Memory_Model/.
+// SynchronizedCounterExample, LockCounterExample, AtomicCounterExample, CounterWithLock,
+// CounterSolution1 and CounterSolution2 all implement it, so they can be swapped freely
+// (for example inside a benchmark) without knowing which strategy sits behind it.
+// getCount() returns long so that striped counters (see StripedCounter) can run for a long
+// time under heavy load without overflowing.
+public interface Counter {
+
+    // Adds one to the counter. Must be safe to call from many threads at once.
+    void increment();
+
+    // Returns the current value. Implementations that spread the count over several
+    // variables (StripedCounter) return a sum that is only exact when no increment is
+    // running concurrently.
+    long getCount();
+}
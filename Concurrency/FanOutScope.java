@@ -0,0 +1,264 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Structured fan-out/fan-in on virtual threads: subtasks forked in a scope cannot outlive it.
+ *
+ * With CompletableFuture, branches are independent: when futureWithError fails in
+ * CompletableFutureExample, Source A, B and C keep running (and holding threads, connections,
+ * memory) although the request they were for has already failed. Nothing cancels them, and
+ * nothing waits for them either, so they can still be running after the caller returned.
+ *
+ * A FanOutScope ties the branches to one block of code:
+ *
+ *     try (FanOutScope<String> scope = FanOutScope.shutdownOnFailure(Duration.ofSeconds(2))) {
+ *         var a = scope.fork(() -> fetchA());
+ *         var c = scope.fork(() -> fetchC());
+ *         scope.join().throwIfFailed();
+ *         return a.get() + c.get();
+ *     }
+ *
+ * - shutdownOnFailure: the first failing subtask interrupts all its siblings, and
+ *   throwIfFailed() rethrows its exception. Use it when every result is needed.
+ * - shutdownOnFirstSuccess: the first successful subtask interrupts the others, and result()
+ *   returns its value. Use it to ask several replicas and keep the fastest.
+ * - One deadline for the whole scope: join() throws TimeoutException when it passes, after
+ *   interrupting whatever is still running.
+ * - close() interrupts the subtasks still running and waits until they have all finished,
+ *   so when the try block exits there is no orphaned subtask left.
+ *
+ * This is what java.util.concurrent.StructuredTaskScope does; it is still a preview API in
+ * Java 21 (javac --enable-preview), which the examples in this repository don't use. Each
+ * subtask runs on its own virtual thread. The scope belongs to the thread that created it:
+ * only that thread may fork, join and close.
+ */
+public final class FanOutScope<T> implements AutoCloseable {
+
+    private enum Policy { SHUTDOWN_ON_FAILURE, SHUTDOWN_ON_FIRST_SUCCESS }
+
+    public enum State { UNAVAILABLE, SUCCESS, FAILED }
+
+    // One forked branch. get() and exception() may only be called after join().
+    public final class Subtask {
+        private volatile State state = State.UNAVAILABLE;
+        private T result;
+        private Throwable exception;
+
+        public State state() {
+            return state;
+        }
+
+        public T get() {
+            if (state != State.SUCCESS) {
+                throw new IllegalStateException("Subtask did not complete successfully: " + state);
+            }
+            return result;
+        }
+
+        public Throwable exception() {
+            if (state != State.FAILED) {
+                throw new IllegalStateException("Subtask did not fail: " + state);
+            }
+            return exception;
+        }
+    }
+
+    private final Policy policy;
+    private final long deadlineNanos; // System.nanoTime() value
+    private final String name;
+    private final Thread owner = Thread.currentThread();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition done = lock.newCondition();
+    private final List<Thread> threads = new ArrayList<>(); // guarded by lock
+    private int running;                                    // guarded by lock
+    private boolean shutdown;                               // guarded by lock
+    private Throwable firstFailure;                         // guarded by lock
+    private T firstSuccess;                                 // guarded by lock
+    private boolean hasSuccess;                             // guarded by lock
+    private boolean joined;
+
+    private FanOutScope(Policy policy, Duration deadline) {
+        this.policy = policy;
+        this.deadlineNanos = System.nanoTime() + deadline.toNanos();
+        this.name = "fan-out-" + Integer.toHexString(System.identityHashCode(this)) + "-";
+    }
+
+    public static <T> FanOutScope<T> shutdownOnFailure(Duration deadline) {
+        return new FanOutScope<>(Policy.SHUTDOWN_ON_FAILURE, deadline);
+    }
+
+    public static <T> FanOutScope<T> shutdownOnFirstSuccess(Duration deadline) {
+        return new FanOutScope<>(Policy.SHUTDOWN_ON_FIRST_SUCCESS, deadline);
+    }
+
+    // Starts the task on a new virtual thread. After a shutdown the task is not started and
+    // its Subtask stays UNAVAILABLE.
+    public Subtask fork(Callable<? extends T> task) {
+        checkOwner();
+        Subtask subtask = new Subtask();
+        lock.lock();
+        try {
+            if (shutdown) {
+                return subtask;
+            }
+            running++;
+            threads.add(Thread.ofVirtual().name(name, threads.size()).start(() -> run(task, subtask)));
+        } finally {
+            lock.unlock();
+        }
+        return subtask;
+    }
+
+    // Waits until all subtasks have finished or the policy shut the scope down. If the deadline
+    // passes first, the remaining subtasks are interrupted and TimeoutException is thrown.
+    public FanOutScope<T> join() throws InterruptedException, TimeoutException {
+        checkOwner();
+        joined = true;
+        lock.lock();
+        try {
+            while (running > 0 && !shutdown) {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    shutdown();
+                    throw new TimeoutException("Deadline passed with " + running + " subtask(s) still running");
+                }
+                done.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    // shutdownOnFailure: rethrows the first failure, wrapped in an ExecutionException
+    public void throwIfFailed() throws ExecutionException {
+        checkJoined();
+        lock.lock();
+        try {
+            if (firstFailure != null) {
+                throw new ExecutionException(firstFailure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // shutdownOnFirstSuccess: the first successful result; if every subtask failed, the first
+    // failure wrapped in an ExecutionException
+    public T result() throws ExecutionException {
+        checkJoined();
+        if (policy != Policy.SHUTDOWN_ON_FIRST_SUCCESS) {
+            throw new IllegalStateException("result() needs a shutdownOnFirstSuccess scope");
+        }
+        lock.lock();
+        try {
+            if (hasSuccess) {
+                return firstSuccess;
+            }
+            throw new ExecutionException(firstFailure != null ? firstFailure
+                    : new IllegalStateException("No subtask completed successfully"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Interrupts the subtasks still running and waits for all of them to finish
+    @Override
+    public void close() {
+        checkOwner();
+        List<Thread> forked;
+        lock.lock();
+        try {
+            shutdown();
+            forked = List.copyOf(threads);
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        for (Thread thread : forked) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // keep waiting: close() must not leave orphans behind
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(Callable<? extends T> task, Subtask subtask) {
+        T value = null;
+        Throwable failure = null;
+        try {
+            value = task.call();
+        } catch (Throwable t) {
+            failure = t;
+        }
+        lock.lock();
+        try {
+            running--;
+            if (shutdown) {
+                // Interrupted (or finished too late) after the scope was decided: its outcome
+                // is not used, so the subtask stays UNAVAILABLE
+            } else if (failure == null) {
+                subtask.result = value;
+                subtask.state = State.SUCCESS;
+                if (policy == Policy.SHUTDOWN_ON_FIRST_SUCCESS) {
+                    firstSuccess = value;
+                    hasSuccess = true;
+                    shutdown();
+                }
+            } else {
+                subtask.exception = failure;
+                subtask.state = State.FAILED;
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                }
+                if (policy == Policy.SHUTDOWN_ON_FAILURE) {
+                    shutdown();
+                }
+            }
+            done.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs with the lock held
+    private void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        for (Thread thread : threads) {
+            if (thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+        done.signalAll();
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Only the thread that opened the scope may use it");
+        }
+    }
+
+    private void checkJoined() {
+        checkOwner();
+        if (!joined) {
+            throw new IllegalStateException("Call join() first");
+        }
+    }
+}
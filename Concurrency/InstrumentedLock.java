@@ -0,0 +1,385 @@
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A ReentrantLock that records how it behaves: how long threads wait for it, how long they
+ * hold it, how many threads are queued on it, and how often tryLock() fails.
+ *
+ * It implements Lock, so it can replace the ReentrantLock in LockCounterExample,
+ * CounterWithLock or ConcurrencyExamples (they all accept a Lock in their constructor).
+ *
+ * Keeping the overhead low:
+ * - Wait time, hold time and queue length are recorded into plain LatencyRecorder histograms
+ *   WHILE THE LOCK IS HELD (right after acquiring, right before releasing). The lock itself
+ *   already serializes those writes, so the histograms need no synchronization of their own.
+ * - An uncontended acquisition is detected with tryLock() and records a wait of 0, which saves
+ *   the clock read before acquiring. The clock is still read once after acquiring: that is
+ *   where the hold time starts. (Not done for fair locks, where tryLock() would jump the queue.)
+ * - tryLock() failures happen without the lock, so they go to a LongAdder.
+ *
+ * Reading: snapshot() takes the lock for a moment and copies the histograms. The JMX getters
+ * (InstrumentedLockMXBean) share one such snapshot, taken at most once per second, so a
+ * monitoring tool polling a dozen attributes does not take the lock a dozen times.
+ *
+ * Condition.await() releases the lock, so a hold ends when await() starts and a new one starts
+ * when it returns: hold time does not include the time spent waiting for a signal.
+ */
+public class InstrumentedLock implements Lock, InstrumentedLockMXBean {
+
+    private final String name;
+    private final ReentrantLock lock;
+
+    // Guarded by lock
+    private final LatencyRecorder waitNanos = new LatencyRecorder();
+    private final LatencyRecorder holdNanos = new LatencyRecorder();
+    private final LatencyRecorder queueLength = new LatencyRecorder();
+    private long contendedAcquires;
+    private long acquiredAt; // when the current owner took the outermost hold, or came back from await()
+
+    private final LongAdder tryLockFailures = new LongAdder();
+
+    private static final long MBEAN_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private volatile Published published; // what the MXBean getters read
+
+    private record Published(Snapshot snapshot, long takenAt) {}
+
+    public record Snapshot(String name, long acquires, long contendedAcquires, long tryLockFailures,
+                           LatencyRecorder waitNanos, LatencyRecorder holdNanos,
+                           LatencyRecorder queueLength) {
+
+        @Override
+        public String toString() {
+            return name + ": acquires=" + acquires + " contended=" + contendedAcquires
+                    + " tryLockFailures=" + tryLockFailures
+                    + "\n  wait  " + waitNanos.summary()
+                    + "\n  hold  " + holdNanos.summary()
+                    + "\n  queue p99=" + queueLength.percentile(99) + " max=" + queueLength.max();
+        }
+    }
+
+    public InstrumentedLock(String name) {
+        this(name, false);
+    }
+
+    public InstrumentedLock(String name, boolean fair) {
+        this.name = name;
+        this.lock = new ReentrantLock(fair);
+    }
+
+    @Override
+    public void lock() {
+        if (!lock.isFair() && lock.tryLock()) {
+            onAcquired(0);
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        onAcquired(System.nanoTime() - start);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException(); // same contract as ReentrantLock, even on the fast path
+        }
+        if (!lock.isFair() && lock.tryLock()) {
+            onAcquired(0);
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lockInterruptibly();
+        onAcquired(System.nanoTime() - start);
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (lock.tryLock()) {
+            onAcquired(0);
+            return true;
+        }
+        tryLockFailures.increment();
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (!lock.isFair() && lock.tryLock()) {
+            onAcquired(0);
+            return true;
+        }
+        long start = System.nanoTime();
+        if (lock.tryLock(time, unit)) {
+            onAcquired(System.nanoTime() - start);
+            return true;
+        }
+        tryLockFailures.increment();
+        return false;
+    }
+
+    @Override
+    public void unlock() {
+        if (lock.isHeldByCurrentThread() && lock.getHoldCount() == 1) {
+            holdNanos.record(System.nanoTime() - acquiredAt); // still holding: safe to write
+        }
+        lock.unlock(); // throws IllegalMonitorStateException if not held, like ReentrantLock
+    }
+
+    @Override
+    public Condition newCondition() {
+        return new InstrumentedCondition(lock.newCondition());
+    }
+
+    // Runs with the lock held
+    private void onAcquired(long waited) {
+        if (lock.getHoldCount() > 1) {
+            return; // re-entry by the owner: not a new acquisition
+        }
+        acquiredAt = System.nanoTime();
+        waitNanos.record(waited);
+        if (waited > 0) {
+            contendedAcquires++;
+        }
+        queueLength.record(lock.getQueueLength());
+    }
+
+    // Consistent copy of all statistics. Briefly takes the lock, so poll it (seconds), don't spin on it.
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            return new Snapshot(name, waitNanos.count(), contendedAcquires, tryLockFailures.sum(),
+                    copyOf(waitNanos), copyOf(holdNanos), copyOf(queueLength));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The snapshot the MXBean getters share; taken again once it is MBEAN_REFRESH_NANOS old
+    private Snapshot publishedSnapshot() {
+        Published current = published;
+        long now = System.nanoTime();
+        if (current == null || now - current.takenAt() > MBEAN_REFRESH_NANOS) {
+            current = new Published(snapshot(), now);
+            published = current;
+        }
+        return current.snapshot();
+    }
+
+    // Registers this lock with the platform MBean server and returns it, for chaining:
+    // Lock lock = new InstrumentedLock("orders").registerMBean();
+    public InstrumentedLock registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName());
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register lock MBean " + name, e);
+        }
+        return this;
+    }
+
+    public void unregisterMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName());
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister lock MBean " + name, e);
+        }
+    }
+
+    private ObjectName objectName() throws JMException {
+        return new ObjectName("locks:type=InstrumentedLock,name=" + ObjectName.quote(name));
+    }
+
+    private static LatencyRecorder copyOf(LatencyRecorder recorder) {
+        LatencyRecorder copy = new LatencyRecorder();
+        copy.merge(recorder);
+        return copy;
+    }
+
+    // --- InstrumentedLockMXBean ---
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getAcquireCount() {
+        return publishedSnapshot().acquires();
+    }
+
+    @Override
+    public long getContendedAcquireCount() {
+        return publishedSnapshot().contendedAcquires();
+    }
+
+    @Override
+    public long getTryLockFailureCount() {
+        return tryLockFailures.sum();
+    }
+
+    @Override
+    public long getWaitTimeP50() {
+        return publishedSnapshot().waitNanos().percentile(50);
+    }
+
+    @Override
+    public long getWaitTimeP99() {
+        return publishedSnapshot().waitNanos().percentile(99);
+    }
+
+    @Override
+    public long getWaitTimeMax() {
+        return publishedSnapshot().waitNanos().max();
+    }
+
+    @Override
+    public long getHoldTimeP50() {
+        return publishedSnapshot().holdNanos().percentile(50);
+    }
+
+    @Override
+    public long getHoldTimeP99() {
+        return publishedSnapshot().holdNanos().percentile(99);
+    }
+
+    @Override
+    public long getHoldTimeMax() {
+        return publishedSnapshot().holdNanos().max();
+    }
+
+    @Override
+    public long getQueueLengthP99() {
+        return publishedSnapshot().queueLength().percentile(99);
+    }
+
+    @Override
+    public long getQueueLengthMax() {
+        return publishedSnapshot().queueLength().max();
+    }
+
+    @Override
+    public void reset() {
+        lock.lock();
+        try {
+            waitNanos.reset();
+            holdNanos.reset();
+            queueLength.reset();
+            contendedAcquires = 0;
+            tryLockFailures.reset();
+            published = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // await() releases the lock and takes it again before returning: each side of it ends or
+    // starts a hold, while the lock is held, like unlock() and onAcquired()
+    private final class InstrumentedCondition implements Condition {
+        private final Condition condition;
+
+        InstrumentedCondition(Condition condition) {
+            this.condition = condition;
+        }
+
+        private void beforeAwait() {
+            if (lock.isHeldByCurrentThread()) { // otherwise await() throws IllegalMonitorStateException
+                holdNanos.record(System.nanoTime() - acquiredAt);
+            }
+        }
+
+        // Runs even if await() throws: the lock has been taken again by then
+        private void afterAwait() {
+            if (lock.isHeldByCurrentThread()) {
+                acquiredAt = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            beforeAwait();
+            try {
+                condition.await();
+            } finally {
+                afterAwait();
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            beforeAwait();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                afterAwait();
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            beforeAwait();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                afterAwait();
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            beforeAwait();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                afterAwait();
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            beforeAwait();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                afterAwait();
+            }
+        }
+
+        @Override
+        public void signal() {
+            condition.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            condition.signalAll();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        InstrumentedLock lock = new InstrumentedLock("LockCounterExample").registerMBean();
+        LockCounterExample counter = new LockCounterExample(lock);
+
+        Runnable task = () -> {
+            for (int i = 0; i < 100_000; i++) {
+                counter.increment();
+            }
+        };
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(task);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.println("Final Count (InstrumentedLock): " + counter.getCount()); // 400000
+        // The same numbers are visible in JConsole under the "locks" domain while the program runs
+        System.out.println(lock.snapshot());
+    }
+}
@@ -0,0 +1,35 @@
+// Management interface for InstrumentedLock. Registered under
+// "locks:type=InstrumentedLock,name=<lock name>", so every instrumented lock shows up in
+// JConsole / VisualVM / any JMX exporter without attaching a profiler.
+// All times are in nanoseconds. The values come from a snapshot refreshed at most once per
+// second (except getTryLockFailureCount(), which is always current).
+public interface InstrumentedLockMXBean {
+
+    String getName();
+
+    long getAcquireCount();
+
+    // Acquisitions that had to wait because another thread held the lock
+    long getContendedAcquireCount();
+
+    long getTryLockFailureCount();
+
+    long getWaitTimeP50();
+
+    long getWaitTimeP99();
+
+    long getWaitTimeMax();
+
+    long getHoldTimeP50();
+
+    long getHoldTimeP99();
+
+    long getHoldTimeMax();
+
+    // Threads queued on the lock, sampled at each acquisition
+    long getQueueLengthP99();
+
+    long getQueueLengthMax();
+
+    void reset();
+}
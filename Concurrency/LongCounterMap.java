@@ -0,0 +1,175 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Millions of keyed counters (e.g. requests per user id) without an object per entry.
+ *
+ * The obvious version is ConcurrentHashMap<Long, AtomicLong>: per entry that is a map node,
+ * a boxed Long key and an AtomicLong (~80-100 bytes on a 64-bit JVM), plus 3 pointer hops
+ * per lookup, each likely a cache miss. CounterSolution2 / AtomicCounterExample already show
+ * that a counter needs nothing but a CAS on a long; this class keeps exactly that, for many
+ * keys at once:
+ * - keys and values live in ONE long[] (key at 2*i, value at 2*i+1), so an entry is 16 bytes
+ *   and a lookup usually touches a single cache line;
+ * - open addressing with linear probing: no nodes, no chains;
+ * - a new key is inserted by CAS-ing an empty key slot; counts are updated with an atomic
+ *   getAndAdd on the value slot. No locks anywhere.
+ *
+ * Limitations, chosen to keep every operation lock-free:
+ * - the table is fixed at construction, at twice the expected number of keys (rounded up to
+ *   a power of two, see capacity()) to keep probe sequences short. No load factor is enforced:
+ *   keys beyond expectedKeys are accepted, only with longer probes, and addAndGet()/increment()
+ *   throw IllegalStateException once every slot is taken;
+ * - keys cannot be removed (removal would need tombstones and a way to reclaim them).
+ * Key 0 is used internally to mark an empty slot, so it is stored in a separate field.
+ */
+public class LongCounterMap {
+
+    private static final long EMPTY = 0L;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L; // 2^64 / golden ratio
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ZERO_KEY_VALUE;
+    private static final VarHandle ZERO_KEY_PRESENT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ZERO_KEY_VALUE = lookup.findVarHandle(LongCounterMap.class, "zeroKeyValue", long.class);
+            ZERO_KEY_PRESENT = lookup.findVarHandle(LongCounterMap.class, "zeroKeyPresent", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Callback for forEach(); primitive arguments so iterating does not box either
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private final long[] slots;   // [key0, value0, key1, value1, ...]
+    private final int mask;       // number of entries - 1 (a power of two)
+    private final int shift;      // 64 - log2(number of entries), for Fibonacci hashing
+    private final LongAdder size = new LongAdder();
+
+    private volatile long zeroKeyValue;
+    private volatile boolean zeroKeyPresent;
+
+    public LongCounterMap(int expectedKeys) {
+        if (expectedKeys < 1 || expectedKeys > (1 << 28)) {
+            throw new IllegalArgumentException("expectedKeys must be in [1, 2^28]: " + expectedKeys);
+        }
+        // Load factor <= 0.5 keeps linear probe sequences short
+        int entries = Integer.highestOneBit(expectedKeys * 2 - 1) << 1;
+        this.slots = new long[entries * 2];
+        this.mask = entries - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(entries);
+    }
+
+    public long increment(long key) {
+        return addAndGet(key, 1L);
+    }
+
+    // Adds delta to the counter of key (creating it at 0 first) and returns the new value
+    public long addAndGet(long key, long delta) {
+        if (key == EMPTY) {
+            if (!zeroKeyPresent && ZERO_KEY_PRESENT.compareAndSet(this, false, true)) {
+                size.increment();
+            }
+            return (long) ZERO_KEY_VALUE.getAndAdd(this, delta) + delta;
+        }
+        int index = indexOf(key);
+        for (int probes = 0; probes <= mask; probes++) {
+            int keySlot = index << 1;
+            long current = (long) SLOTS.getAcquire(slots, keySlot);
+            if (current == EMPTY) {
+                long witness = (long) SLOTS.compareAndExchange(slots, keySlot, EMPTY, key);
+                if (witness == EMPTY) {
+                    size.increment(); // we claimed the slot
+                    current = key;
+                } else {
+                    current = witness; // lost the race: the winner may have inserted the same key
+                }
+            }
+            if (current == key) {
+                return (long) SLOTS.getAndAdd(slots, keySlot + 1, delta) + delta;
+            }
+            index = (index + 1) & mask;
+        }
+        throw new IllegalStateException("LongCounterMap is full (" + (mask + 1) + " entries)");
+    }
+
+    // Returns the counter of key, or 0 if the key was never added
+    public long get(long key) {
+        if (key == EMPTY) {
+            return zeroKeyValue;
+        }
+        int index = indexOf(key);
+        for (int probes = 0; probes <= mask; probes++) {
+            int keySlot = index << 1;
+            long current = (long) SLOTS.getAcquire(slots, keySlot);
+            if (current == key) {
+                return (long) SLOTS.getVolatile(slots, keySlot + 1);
+            }
+            if (current == EMPTY) {
+                return 0L; // keys are never removed, so an empty slot ends the probe sequence
+            }
+            index = (index + 1) & mask;
+        }
+        return 0L;
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    // Number of keys the table can hold
+    public int capacity() {
+        return mask + 1;
+    }
+
+    // Visits every key with its current count. Concurrent updates may or may not be seen.
+    public void forEach(EntryConsumer consumer) {
+        if (zeroKeyPresent) {
+            consumer.accept(0L, zeroKeyValue);
+        }
+        for (int keySlot = 0; keySlot < slots.length; keySlot += 2) {
+            long key = (long) SLOTS.getAcquire(slots, keySlot);
+            if (key != EMPTY) {
+                consumer.accept(key, (long) SLOTS.getVolatile(slots, keySlot + 1));
+            }
+        }
+    }
+
+    // Fibonacci hashing: multiply by 2^64/phi and keep the top bits. Spreads sequential ids
+    // (the common case for user ids) evenly over the table.
+    private int indexOf(long key) {
+        return (int) ((key * GOLDEN) >>> shift);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = 100_000;
+        LongCounterMap requestsPerUser = new LongCounterMap(users);
+
+        // 4 threads each record one request for every user
+        Runnable task = () -> {
+            for (long userId = 0; userId < users; userId++) {
+                requestsPerUser.increment(userId);
+            }
+        };
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(task);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.println("Distinct users: " + requestsPerUser.size());          // 100000
+        System.out.println("Requests for user 0: " + requestsPerUser.get(0));      // 4
+        System.out.println("Requests for user 4242: " + requestsPerUser.get(4242)); // 4
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A read-mostly counter: same contract as CounterWithLock, but getCount() does not lock.
+ *
+ * CounterWithLock.getCount() takes the ReentrantLock just to read an int, so every reader
+ * waits for writers AND for the other readers, and every read writes to the lock's state
+ * (a cache-line invalidation on all other cores). When a value is polled far more often than
+ * it changes (dashboards, health checks), readers end up being most of the lock contention.
+ *
+ * StampedLock offers an optimistic read: tryOptimisticRead() returns a stamp without writing
+ * anything, the value is read, and validate(stamp) checks that no writer got the lock in
+ * between. If validation fails the read is simply repeated under a real read lock. In the
+ * common case (no concurrent write) a read is two volatile reads and no lock at all.
+ *
+ * Note: StampedLock is NOT reentrant, and the optimistic section must only read fields into
+ * locals; nothing read there may be used before validate() succeeds.
+ */
+public class StampedCounter implements Counter {
+    private long count = 0; // guarded by lock; read optimistically in getCount()
+    private final StampedLock lock = new StampedLock();
+
+    @Override
+    public void increment() {
+        long stamp = lock.writeLock(); // Acquire the exclusive lock
+        try {
+            count++;
+        } finally {
+            lock.unlockWrite(stamp); // Release the lock in a finally block
+        }
+    }
+
+    @Override
+    public long getCount() {
+        long stamp = lock.tryOptimisticRead(); // 0 if a writer currently holds the lock
+        long current = count;
+        if (lock.validate(stamp)) {
+            return current; // No writer since the stamp was taken: the value is consistent
+        }
+
+        // A writer got in between: fall back to a pessimistic read lock
+        stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        StampedCounter counter = new StampedCounter();
+
+        // One writer, several pollers: the typical read-mostly shape
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                counter.increment();
+            }
+        });
+        Runnable poller = () -> {
+            long last = 0;
+            for (int i = 0; i < 100_000; i++) {
+                long seen = counter.getCount();
+                if (seen < last) {
+                    throw new IllegalStateException("Counter went backwards: " + last + " -> " + seen);
+                }
+                last = seen;
+            }
+        };
+        Thread reader1 = new Thread(poller);
+        Thread reader2 = new Thread(poller);
+
+        writer.start();
+        reader1.start();
+        reader2.start();
+
+        writer.join();
+        reader1.join();
+        reader2.join();
+
+        // The result will consistently be 1000, and readers never observed a torn or stale-then-older value
+        System.out.println("Final Count (StampedLock): " + counter.getCount());
+    }
+}
@@ -0,0 +1,298 @@
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs dependent initialization steps in parallel and reports where the startup time went.
+ *
+ * CountDownLatchDemo starts three independent Workers and waits for all of them. A real
+ * service start is a graph: the database pool needs the config, the HTTP server needs the
+ * database and the cache, metrics only need the config... Run one after the other, the start
+ * time is the SUM of all steps; run as a graph, it is the length of the longest dependency
+ * chain (the critical path). That chain is the only thing worth optimizing.
+ *
+ * The same counting-down idea as CountDownLatch is used per task, without blocking: every task
+ * gets a counter initialised to its number of dependencies, and when a task finishes it
+ * decrements the counter of every task that depends on it. A task is handed to the executor
+ * only when its counter reaches zero, starting with the tasks that have no dependencies, so
+ * no pool thread ever waits for another task: a pool of any size (even one thread) finishes
+ * the graph. A final CountDownLatch (one count per task) tells run() everything is done.
+ *
+ * run() returns a Report with each task's start offset and duration, the critical path, the
+ * wall time, and the serial time (what a sequential start would have cost).
+ * If a task throws, or the executor rejects it, it is FAILED and every task that depends on it
+ * (directly or not) is SKIPPED.
+ */
+public class StartupOrchestrator {
+
+    public enum Status { SUCCEEDED, FAILED, SKIPPED }
+
+    private record TaskSpec(String name, Runnable action, List<String> dependsOn) {}
+
+    // Offsets are relative to the start of run(), in nanoseconds
+    public record TaskTiming(String name, Status status, long startNanos, long durationNanos,
+                             Throwable error) {
+
+        public long endNanos() {
+            return startNanos + durationNanos;
+        }
+    }
+
+    public record Report(long wallNanos, Map<String, TaskTiming> tasks, List<String> criticalPath) {
+
+        // Time a one-after-the-other startup would take
+        public long serialNanos() {
+            long sum = 0;
+            for (TaskTiming timing : tasks.values()) {
+                sum += timing.durationNanos();
+            }
+            return sum;
+        }
+
+        public boolean succeeded() {
+            for (TaskTiming timing : tasks.values()) {
+                if (timing.status() != Status.SUCCEEDED) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-12s %-10s %10s %10s%n", "task", "status", "start(ms)", "took(ms)"));
+            for (TaskTiming t : tasks.values()) {
+                sb.append(String.format("%-12s %-10s %10.1f %10.1f%n",
+                        t.name(), t.status(), t.startNanos() / 1e6, t.durationNanos() / 1e6));
+            }
+            sb.append(String.format("Wall time: %.1f ms, serial time would be %.1f ms%n",
+                    wallNanos / 1e6, serialNanos() / 1e6));
+            sb.append("Critical path: ").append(String.join(" -> ", criticalPath));
+            return sb.toString();
+        }
+    }
+
+    private final Map<String, TaskSpec> tasks = new LinkedHashMap<>();
+
+    // Registers an initialization step. Dependencies must be registered before run() is called.
+    public StartupOrchestrator addTask(String name, Runnable action, String... dependsOn) {
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate task: " + name);
+        }
+        tasks.put(name, new TaskSpec(name, action, List.of(dependsOn)));
+        return this;
+    }
+
+    // Runs every task on its own platform thread, like CountDownLatchDemo does
+    public Report run() throws InterruptedException {
+        return run(task -> new Thread(task).start());
+    }
+
+    // Waits as long as the tasks take: an action that never returns makes run() wait forever
+    public Report run(Executor executor) throws InterruptedException {
+        Execution execution = start(executor);
+        execution.allDone.await();
+        return report(execution);
+    }
+
+    // Like run(executor), but gives up after timeout; the tasks still running are not stopped
+    public Report run(Executor executor, Duration timeout) throws InterruptedException, TimeoutException {
+        Execution execution = start(executor);
+        if (!execution.allDone.await(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            List<String> unfinished = new ArrayList<>(tasks.keySet());
+            unfinished.removeAll(execution.results.keySet());
+            throw new TimeoutException("Startup did not finish within " + timeout + ", still running or waiting: "
+                    + unfinished);
+        }
+        return report(execution);
+    }
+
+    // The state of one run(): shared by the tasks, which schedule their dependents themselves
+    private final class Execution {
+        final Executor executor;
+        final Map<String, List<String>> dependents;
+        final Map<String, AtomicInteger> pending = new HashMap<>(); // dependencies not finished yet
+        final Map<String, TaskTiming> results = new ConcurrentHashMap<>();
+        final CountDownLatch allDone = new CountDownLatch(tasks.size());
+        final long runStart = System.nanoTime();
+
+        Execution(Executor executor, Map<String, List<String>> dependents) {
+            this.executor = executor;
+            this.dependents = dependents;
+            for (TaskSpec spec : tasks.values()) {
+                pending.put(spec.name(), new AtomicInteger(spec.dependsOn().size()));
+            }
+        }
+
+        // Called once per task, when its last dependency has finished
+        void schedule(TaskSpec spec) {
+            for (String dependency : spec.dependsOn()) {
+                if (results.get(dependency).status() != Status.SUCCEEDED) {
+                    finish(spec, new TaskTiming(spec.name(), Status.SKIPPED, System.nanoTime() - runStart, 0, null));
+                    return;
+                }
+            }
+            try {
+                executor.execute(() -> runTask(spec));
+            } catch (RejectedExecutionException e) {
+                finish(spec, new TaskTiming(spec.name(), Status.FAILED, System.nanoTime() - runStart, 0, e));
+            }
+        }
+
+        private void runTask(TaskSpec spec) {
+            TaskTiming timing = null;
+            try {
+                timing = execute(spec, runStart);
+            } finally {
+                // An Error escaped execute(): still record the task so dependents see it as failed
+                finish(spec, timing != null ? timing
+                        : new TaskTiming(spec.name(), Status.FAILED, System.nanoTime() - runStart, 0, null));
+            }
+        }
+
+        // The result is recorded before the counters are decremented, so the dependent that
+        // takes a counter to zero sees the result of every one of its dependencies
+        private void finish(TaskSpec spec, TaskTiming timing) {
+            results.put(spec.name(), timing);
+            for (String dependent : dependents.get(spec.name())) {
+                if (pending.get(dependent).decrementAndGet() == 0) {
+                    schedule(tasks.get(dependent));
+                }
+            }
+            allDone.countDown();
+        }
+    }
+
+    private Execution start(Executor executor) {
+        Execution execution = new Execution(executor, validate());
+        for (TaskSpec spec : tasks.values()) {
+            if (spec.dependsOn().isEmpty()) {
+                execution.schedule(spec);
+            }
+        }
+        return execution;
+    }
+
+    private Report report(Execution execution) {
+        long wall = System.nanoTime() - execution.runStart;
+
+        Map<String, TaskTiming> ordered = new LinkedHashMap<>();
+        for (String name : tasks.keySet()) {
+            ordered.put(name, execution.results.get(name));
+        }
+        return new Report(wall, ordered, criticalPath(ordered));
+    }
+
+    private TaskTiming execute(TaskSpec spec, long runStart) {
+        long start = System.nanoTime();
+        try {
+            spec.action().run();
+            return new TaskTiming(spec.name(), Status.SUCCEEDED, start - runStart, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            return new TaskTiming(spec.name(), Status.FAILED, start - runStart, System.nanoTime() - start, e);
+        }
+    }
+
+    // Checks that every dependency exists and that there is no cycle (Kahn's algorithm).
+    // Returns, for each task, the tasks that depend on it.
+    private Map<String, List<String>> validate() {
+        Map<String, List<String>> dependents = new HashMap<>();
+        Map<String, Integer> pending = new HashMap<>();
+        for (TaskSpec spec : tasks.values()) {
+            dependents.putIfAbsent(spec.name(), new ArrayList<>());
+            pending.put(spec.name(), spec.dependsOn().size());
+            for (String dependency : spec.dependsOn()) {
+                if (!tasks.containsKey(dependency)) {
+                    throw new IllegalArgumentException(spec.name() + " depends on unknown task " + dependency);
+                }
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(spec.name());
+            }
+        }
+        Deque<String> runnable = new ArrayDeque<>();
+        pending.forEach((name, count) -> {
+            if (count == 0) {
+                runnable.add(name);
+            }
+        });
+        int visited = 0;
+        while (!runnable.isEmpty()) {
+            String name = runnable.poll();
+            visited++;
+            for (String dependent : dependents.get(name)) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    runnable.add(dependent);
+                }
+            }
+        }
+        if (visited != tasks.size()) {
+            throw new IllegalArgumentException("Task dependencies contain a cycle");
+        }
+        return dependents;
+    }
+
+    // Walks back from the task that finished last, each time through the dependency that
+    // finished last: that is the chain that actually decided the wall time.
+    private List<String> criticalPath(Map<String, TaskTiming> results) {
+        TaskTiming last = null;
+        for (TaskTiming timing : results.values()) {
+            if (last == null || timing.endNanos() > last.endNanos()) {
+                last = timing;
+            }
+        }
+        List<String> path = new ArrayList<>();
+        while (last != null) {
+            path.add(last.name());
+            TaskTiming latestDependency = null;
+            for (String dependency : tasks.get(last.name()).dependsOn()) {
+                TaskTiming timing = results.get(dependency);
+                if (latestDependency == null || timing.endNanos() > latestDependency.endNanos()) {
+                    latestDependency = timing;
+                }
+            }
+            last = latestDependency;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Simulated initialization step, like Worker in CountDownLatchDemo
+    private static Runnable step(String name, long maxMillis) {
+        return () -> {
+            System.out.println(name + " is starting initialization.");
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis / 2, maxMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.out.println(name + " has completed initialization.");
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        StartupOrchestrator startup = new StartupOrchestrator()
+            .addTask("config", step("config", 200))
+            .addTask("database", step("database", 800), "config")
+            .addTask("cache", step("cache", 400), "config")
+            .addTask("metrics", step("metrics", 300), "config")
+            .addTask("http", step("http", 200), "database", "cache");
+
+        System.out.println("Main thread waiting for initialization...");
+        Report report = startup.run();
+        System.out.println(report);
+    }
+}
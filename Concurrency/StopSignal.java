@@ -0,0 +1,161 @@
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A one-shot stop signal that wakes waiting workers immediately.
+ *
+ * ConcurrencyExamples.doVolatileWork() used to poll its volatile 'running' flag from a
+ * Thread.sleep(10) loop. That has two costs: stopping takes up to 10 ms (the rest of the
+ * current sleep), and an idle worker still wakes up 100 times a second just to look at the
+ * flag. Across hundreds of workers the shutdown waits add up, and so do the wakeups.
+ *
+ * StopSignal keeps the same volatile flag, but waiters park (LockSupport.park) instead of
+ * sleeping, and stop() unparks every one of them. park/unpark works the same for platform and
+ * virtual threads; a parked virtual thread releases its carrier thread, so thousands of idle
+ * workers cost nothing.
+ *
+ * No wakeup can be lost: a waiter registers itself BEFORE checking the flag, and stop() sets
+ * the flag BEFORE unparking the registered waiters. If the unpark arrives before the waiter
+ * parks, park() returns at once (the unpark permit is kept).
+ *
+ * stop() also records its timestamp, so each woken waiter can report how long the signal took
+ * to reach it (maxSignalLatencyNanos()).
+ */
+public class StopSignal {
+
+    private final AtomicBoolean stopping = new AtomicBoolean(); // claimed by the first stop()
+    private volatile boolean stopped;
+    private volatile long stoppedAt; // System.nanoTime() of stop(), valid once stopped is true
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicLong maxSignalLatency = new AtomicLong();
+
+    // Requests the stop and wakes every waiter. Calling it again, even concurrently, has no
+    // effect: only the caller that wins the CAS sets stoppedAt, so it is never overwritten.
+    public void stop() {
+        if (!stopping.compareAndSet(false, true)) {
+            return;
+        }
+        stoppedAt = System.nanoTime();
+        stopped = true; // volatile write publishes stoppedAt too
+        for (Thread waiter : waiters) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    // Blocks until stop() is called
+    public void awaitStop() throws InterruptedException {
+        awaitStop(null);
+    }
+
+    // Blocks until stop() is called or the timeout elapses (null = no timeout).
+    // Returns true if stopped. Use the timeout for periodic work: "do work every 10 ms, unless
+    // we're told to stop" without the up-to-10 ms delay of a sleep.
+    public boolean awaitStop(Duration timeout) throws InterruptedException {
+        if (stopped) {
+            return true;
+        }
+        Thread current = Thread.currentThread();
+        long deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        waiters.add(current); // register first, then check: see class comment
+        try {
+            while (!stopped) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (timeout == null) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                // park() may also return spuriously: the loop re-checks the flag
+            }
+            recordLatency(System.nanoTime() - stoppedAt);
+            return true;
+        } finally {
+            waiters.remove(current);
+        }
+    }
+
+    // Longest time any waiter took from stop() to waking up, in nanoseconds
+    public long maxSignalLatencyNanos() {
+        return maxSignalLatency.get();
+    }
+
+    private void recordLatency(long nanos) {
+        maxSignalLatency.accumulateAndGet(nanos, Math::max);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int workers = 500;
+
+        // Old approach: poll a volatile flag every 10 ms
+        for (boolean virtual : new boolean[] {false, true}) {
+            VolatileFlag flag = new VolatileFlag();
+            Thread[] threads = start(workers, virtual, () -> {
+                while (flag.running) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+            Thread.sleep(200);
+            long stopRequestedAt = System.nanoTime();
+            flag.running = false;
+            joinAll(threads);
+            System.out.printf("sleep(10) polling, %d %s threads: all stopped after %.2f ms%n",
+                    workers, virtual ? "virtual" : "platform", (System.nanoTime() - stopRequestedAt) / 1e6);
+        }
+
+        // New approach: park until signalled
+        for (boolean virtual : new boolean[] {false, true}) {
+            StopSignal signal = new StopSignal();
+            Thread[] threads = start(workers, virtual, () -> {
+                try {
+                    signal.awaitStop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Thread.sleep(200);
+            long stopRequestedAt = System.nanoTime();
+            signal.stop();
+            joinAll(threads);
+            System.out.printf("StopSignal,        %d %s threads: all stopped after %.2f ms (slowest wakeup %.3f ms)%n",
+                    workers, virtual ? "virtual" : "platform", (System.nanoTime() - stopRequestedAt) / 1e6,
+                    signal.maxSignalLatencyNanos() / 1e6);
+        }
+    }
+
+    private static final class VolatileFlag {
+        volatile boolean running = true;
+    }
+
+    private static Thread[] start(int count, boolean virtual, Runnable task) {
+        Thread[] threads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            threads[i] = virtual ? Thread.ofVirtual().start(task) : Thread.ofPlatform().start(task);
+        }
+        return threads;
+    }
+
+    private static void joinAll(Thread[] threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A striped counter in the spirit of java.util.concurrent.atomic.LongAdder.
+ *
+ * AtomicCounterExample keeps the whole count in one AtomicInteger, so every core that
+ * increments it fights over the same cache line: each CAS invalidates the line in all other
+ * cores and failed CAS attempts must retry. Past a few dozen threads the counter spends most
+ * of its time bouncing that line between cores instead of counting.
+ *
+ * StripedCounter starts out exactly like the CAS version (a single "base" field). The first
+ * time a CAS on base fails it switches to an array of cells, and each thread hashes to one
+ * cell using a per-thread probe. When two threads keep colliding on the same cell the array
+ * is doubled, up to the number of CPUs. Each cell is padded to its own cache line so that
+ * neighbouring cells do not share a line (false sharing). getCount() adds base and all cells.
+ */
+public class StripedCounter implements Counter {
+
+    // The table never grows beyond the next power of two >= number of CPUs: with more cells
+    // than cores there is nothing left to gain, only memory to waste.
+    private static final int MAX_CELLS = nextPowerOfTwo(Runtime.getRuntime().availableProcessors());
+
+    private static final VarHandle BASE;
+    private static final VarHandle CELLS_BUSY;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            BASE = lookup.findVarHandle(StripedCounter.class, "base", long.class);
+            CELLS_BUSY = lookup.findVarHandle(StripedCounter.class, "cellsBusy", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Per-thread hash used to pick a cell. A mutable holder keeps the ThreadLocal lookup to a
+    // single get() per slow-path call; the value is re-hashed after every collision.
+    private static final ThreadLocal<Probe> PROBE = ThreadLocal.withInitial(Probe::new);
+
+    // Used while there is no contention, and as a fallback while the table is being created.
+    private volatile long base;
+
+    // Null until the first contended CAS on base. Length is always a power of two.
+    private volatile Cell[] cells;
+
+    // Spinlock (0 = free, 1 = held) guarding creation and resizing of the cells table.
+    private volatile int cellsBusy;
+
+    @Override
+    public void increment() {
+        add(1L);
+    }
+
+    public void add(long x) {
+        Cell[] cs = cells;
+        if (cs == null) {
+            // Uncontended fast path: identical to a plain CAS counter
+            long b = base;
+            if (BASE.compareAndSet(this, b, b + x)) {
+                return;
+            }
+        } else {
+            Cell c = cs[PROBE.get().hash & (cs.length - 1)];
+            if (c != null && c.cas(c.value, x)) {
+                return;
+            }
+        }
+        addSlow(x);
+    }
+
+    @Override
+    public long getCount() {
+        long sum = base;
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null) {
+                    sum += c.value;
+                }
+            }
+        }
+        return sum;
+    }
+
+    // Number of cells currently allocated, for demos and benchmarks that want to show the
+    // table growing with contention.
+    public int cellCount() {
+        Cell[] cs = cells;
+        return cs == null ? 0 : cs.length;
+    }
+
+    // Contended path: find (or create) a cell for this thread, growing the table when two
+    // threads keep hitting the same cell.
+    private void addSlow(long x) {
+        Probe probe = PROBE.get();
+        int h = probe.hash;
+        boolean collide = false; // true if the last attempt collided on a non-empty cell
+        for (;;) {
+            Cell[] cs = cells;
+            int n;
+            if (cs != null && (n = cs.length) > 0) {
+                Cell c = cs[h & (n - 1)];
+                if (c == null) {
+                    // Empty slot: try to install a new cell already holding x
+                    if (cellsBusy == 0) {
+                        Cell r = new Cell(x);
+                        if (tryLockCells()) {
+                            try {
+                                Cell[] rs = cells;
+                                int j;
+                                if (rs != null && rs[j = h & (rs.length - 1)] == null) {
+                                    rs[j] = r;
+                                    return;
+                                }
+                            } finally {
+                                cellsBusy = 0;
+                            }
+                            continue; // slot was taken meanwhile, retry
+                        }
+                    }
+                    collide = false;
+                } else if (c.cas(c.value, x)) {
+                    return;
+                } else if (n >= MAX_CELLS || cells != cs) {
+                    collide = false; // at max size or table is stale, just re-hash
+                } else if (!collide) {
+                    collide = true; // give the re-hash one chance before growing
+                } else if (cellsBusy == 0 && tryLockCells()) {
+                    try {
+                        if (cells == cs) {
+                            cells = Arrays.copyOf(cs, n << 1);
+                        }
+                    } finally {
+                        cellsBusy = 0;
+                    }
+                    collide = false;
+                    continue; // retry with the larger table, same hash
+                }
+                h = probe.advance();
+            } else if (cellsBusy == 0 && cells == cs && tryLockCells()) {
+                // First contention: create a table of two cells
+                try {
+                    if (cells == cs) {
+                        Cell[] rs = new Cell[2];
+                        rs[h & 1] = new Cell(x);
+                        cells = rs;
+                        return;
+                    }
+                } finally {
+                    cellsBusy = 0;
+                }
+            } else {
+                // Someone else is creating the table: fall back on base for now
+                long b = base;
+                if (BASE.compareAndSet(this, b, b + x)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean tryLockCells() {
+        return CELLS_BUSY.compareAndSet(this, 0, 1);
+    }
+
+    private static int nextPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    // Padding is split over a class hierarchy because the JVM is free to reorder fields inside
+    // one class, but always lays out superclass fields before subclass fields. 7 longs on each
+    // side keep 'value' alone on a 64-byte cache line.
+    static class CellLeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    static class CellValue extends CellLeftPadding {
+        volatile long value;
+    }
+
+    static final class Cell extends CellValue {
+        long p11, p12, p13, p14, p15, p16, p17;
+
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(CellValue.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        Cell(long x) {
+            value = x;
+        }
+
+        // Adds x on top of the expected value v
+        boolean cas(long v, long x) {
+            return VALUE.compareAndSet(this, v, v + x);
+        }
+    }
+
+    // Per-thread xorshift hash. Starts random (never zero) and moves on after each collision
+    // so that two threads sharing a cell will most likely end up on different ones.
+    static final class Probe {
+        int hash = ThreadLocalRandom.current().nextInt() | 1;
+
+        int advance() {
+            int h = hash;
+            h ^= h << 13;
+            h ^= h >>> 17;
+            h ^= h << 5;
+            return hash = h;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int numThreads = 32;
+        int incrementsPerThread = 1_000_000;
+
+        Counter[] counters = {
+            new SynchronizedCounterExample(),
+            new LockCounterExample(),
+            new AtomicCounterExample(),
+            new StripedCounter()
+        };
+
+        for (Counter counter : counters) {
+            Thread[] threads = new Thread[numThreads];
+            long start = System.nanoTime();
+            for (int i = 0; i < numThreads; i++) {
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < incrementsPerThread; j++) {
+                        counter.increment();
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            // All counters reach the same total; only the time it takes differs
+            System.out.println(counter.getClass().getSimpleName() + ": count=" + counter.getCount()
+                    + ", time=" + elapsedMs + "ms");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * CompletableFutureExample again, written with FanOutScope instead of CompletableFuture.
+ *
+ * The sources are the same (each sleeps a random 1-2 s), but every branch is a plain blocking
+ * call on its own virtual thread, forked in a scope. When one branch fails, the scope
+ * interrupts the others instead of letting them run to the end for nothing.
+ */
+public class StructuredFanOutExample {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        System.out.println("Starting structured fan-out demonstration...");
+
+        // 1. shutdownOnFailure, everything succeeds: fan out, then fan in.
+        // Source B depends on Source A, so A -> B runs as one branch, next to C (like
+        // thenCompose + thenCombine in CompletableFutureExample).
+        try (FanOutScope<String> scope = FanOutScope.shutdownOnFailure(Duration.ofSeconds(5))) {
+            var ab = scope.fork(() -> {
+                String resultA = fetch("Source A");
+                return fetch("Source B based on " + resultA.toUpperCase());
+            });
+            var c = scope.fork(() -> fetch("Source C"));
+
+            scope.join().throwIfFailed();
+            System.out.println("Final Result: " + ab.get() + " | " + c.get());
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Request failed: " + e);
+        }
+
+        // 2. shutdownOnFailure, one branch fails (futureWithError in CompletableFutureExample).
+        // The failure interrupts Source A and Source C right away: the request fails after
+        // ~0.2 s instead of holding two threads for another 1-2 s.
+        long start = System.nanoTime();
+        try (FanOutScope<String> scope = FanOutScope.shutdownOnFailure(Duration.ofSeconds(5))) {
+            scope.fork(() -> fetch("Source A"));
+            scope.fork(() -> fetch("Source C"));
+            scope.fork(() -> {
+                TimeUnit.MILLISECONDS.sleep(200);
+                throw new RuntimeException("Something went wrong!");
+            });
+
+            scope.join().throwIfFailed();
+        } catch (ExecutionException e) {
+            System.err.println("Error caught: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            System.err.println("Request timed out: " + e.getMessage());
+        }
+        // close() has waited for the interrupted branches: nothing is left running here
+        System.out.printf("Failed request finished after %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        // 3. shutdownOnFirstSuccess: ask three replicas, keep the fastest, interrupt the rest
+        try (FanOutScope<String> scope = FanOutScope.shutdownOnFirstSuccess(Duration.ofSeconds(5))) {
+            scope.fork(() -> fetch("Replica 1"));
+            scope.fork(() -> fetch("Replica 2"));
+            scope.fork(() -> fetch("Replica 3"));
+
+            System.out.println("Fastest replica: " + scope.join().result());
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("All replicas failed: " + e);
+        }
+
+        // 4. One deadline for the whole scope: 500 ms is not enough for any source, so join()
+        // interrupts both branches and throws TimeoutException
+        try (FanOutScope<String> scope = FanOutScope.shutdownOnFailure(Duration.ofMillis(500))) {
+            scope.fork(() -> fetch("Source A"));
+            scope.fork(() -> fetch("Source C"));
+
+            scope.join().throwIfFailed();
+        } catch (ExecutionException e) {
+            System.err.println("Error caught: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            System.out.println("Deadline: " + e.getMessage());
+        }
+
+        System.out.println("Structured fan-out demonstration finished.");
+    }
+
+    // A blocking call. Interruption is NOT swallowed: it ends the branch, which is what lets
+    // the scope cancel it.
+    private static String fetch(String source) throws InterruptedException {
+        System.out.println("Fetching data from " + source + " on " + Thread.currentThread());
+        try {
+            TimeUnit.SECONDS.sleep(ThreadLocalRandom.current().nextInt(1, 3));
+        } catch (InterruptedException e) {
+            System.out.println("Cancelled: " + source);
+            throw e;
+        }
+        return "Data from " + source;
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.concurrent.locks.ReentrantLock;
+
 class SynchronizedDemo {
     private int counter = 0;
     private final Object lock = new Object(); // Object used for block synchronization
@@ -13,4 +15,37 @@ class SynchronizedDemo {
             counter++;
         }
     }
+
+    // Read under 'this', so it pairs with incrementMethod(). incrementBlock() guards the same
+    // field with a different lock, which is why the two styles must not be mixed on one field.
+    public synchronized int getCounter() {
+        return counter;
+    }
+}
+
+// The same demo without monitors. A virtual thread that blocks while holding a monitor (inside
+// synchronized) pins its carrier thread; one that blocks holding a ReentrantLock does not (see
+// PinningMonitor). count++ itself never blocks, but code added inside the critical section
+// later (logging, I/O) would.
+class ReentrantLockDemo {
+    private int counter = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public void increment() {
+        lock.lock();
+        try {
+            counter++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCounter() {
+        lock.lock();
+        try {
+            return counter;
+        } finally {
+            lock.unlock();
+        }
+    }
 }
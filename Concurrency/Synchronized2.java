@@ -1,10 +1,20 @@
     import java.util.concurrent.locks.Lock;
     import java.util.concurrent.locks.ReentrantLock;
 
-    class CounterWithLock {
+    class CounterWithLock implements Counter {
         private int count = 0;
-        private final Lock lock = new ReentrantLock();
+        private final Lock lock;
 
+        public CounterWithLock() {
+            this(new ReentrantLock());
+        }
+
+        // Any Lock works, e.g. an InstrumentedLock to see how contended this counter is
+        public CounterWithLock(Lock lock) {
+            this.lock = lock;
+        }
+
+        @Override
         public void increment() {
             lock.lock(); // Acquire the lock
             try {
@@ -14,7 +24,10 @@
             }
         }
 
-        public int getCount() {
+        // Readers take the same exclusive lock as writers. For read-mostly use, see
+        // StampedCounter, which reads optimistically without locking.
+        @Override
+        public long getCount() {
             lock.lock();
             try {
                 return count;
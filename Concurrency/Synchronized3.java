@@ -1,12 +1,15 @@
-public class SynchronizedCounterExample {
+public class SynchronizedCounterExample implements Counter {
     private int count = 0;
 
-    // Synchronizing the instance method locks the 'this' object
+    // Synchronizing the instance method locks the 'this' object. On virtual threads, prefer
+    // LockCounterExample when the critical section can block (see PinningMonitor).
+    @Override
     public synchronized void increment() {
         count++;
     }
     
-    public int getCount() {
+    @Override
+    public long getCount() {
         return count;
     }
 
@@ -1,3 +1,5 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Demonstrates Java Memory Model visibility problems
  * This shows how changes made by one thread may not be visible to another
@@ -114,14 +116,16 @@ class CounterProblem {
 }
 
 // Solution 2: Using synchronized
-class CounterSolution1 {
+class CounterSolution1 implements Counter {
     private int count = 0;
     
+    @Override
     public synchronized void increment() {
         count++;
     }
     
-    public synchronized int getCount() {
+    @Override
+    public synchronized long getCount() {
         return count;
     }
     
@@ -151,16 +155,17 @@ class CounterSolution1 {
 }
 
 // Solution 3: Using AtomicInteger
-import java.util.concurrent.atomic.AtomicInteger;
 
-class CounterSolution2 {
+class CounterSolution2 implements Counter {
     private AtomicInteger count = new AtomicInteger(0);
     
+    @Override
     public void increment() {
         count.incrementAndGet();
     }
     
-    public int getCount() {
+    @Override
+    public long getCount() {
         return count.get();
     }
     
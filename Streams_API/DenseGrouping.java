@@ -0,0 +1,224 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * groupingBy for keys from a small, dense domain (a char range, bytes, an enum, a bounded int
+ * range), with an array slot per possible key instead of a HashMap.
+ *
+ * JavaStreamExample groups with Collectors.groupingBy(name -> name.charAt(0)): every element
+ * boxes its char into a Character, hashes it, and looks it up in a HashMap (and in parallel,
+ * every partition builds its own HashMap and the merge rehashes them into one). When the keys
+ * are known to fall in [min, max], the key IS the index: key - min (or ordinal() for an enum).
+ *
+ * - The key function returns an int (a char or byte widens to it), so no key is ever boxed
+ *   while collecting.
+ * - Each parallel partition fills its own array, as the Collector contract guarantees, and two
+ *   partitions merge slot by slot with the downstream collector's combiner: no lock, no hash.
+ * - The result is a read-only Map view over the final array, in key order: get() and
+ *   containsKey() are an index computation, and only the keys that occurred are present
+ *   (toString(), size(), iteration behave like any map).
+ * A key outside the range fails with IllegalArgumentException rather than being dropped.
+ */
+public final class DenseGrouping {
+
+    // Each partition allocates an array this large at most: beyond that, use groupingBy
+    private static final int MAX_KEYS = 1 << 16;
+
+    // Stands for a downstream result of null, so that its key still counts as present
+    private static final Object NULL_RESULT = new Object();
+
+    private DenseGrouping() {
+    }
+
+    public static <T> Collector<T, ?, Map<Character, List<T>>> byChar(ToIntFunction<? super T> key,
+                                                                      char min, char max) {
+        return byChar(key, min, max, Collectors.toList());
+    }
+
+    public static <T, D> Collector<T, ?, Map<Character, D>> byChar(ToIntFunction<? super T> key, char min, char max,
+                                                                   Collector<? super T, ?, D> downstream) {
+        return dense(key, min, max, index -> (char) (min + index),
+                k -> k instanceof Character c ? c - min : -1, downstream);
+    }
+
+    // All 256 byte values: no range needed
+    public static <T> Collector<T, ?, Map<Byte, List<T>>> byByte(ToIntFunction<? super T> key) {
+        return byByte(key, Collectors.toList());
+    }
+
+    public static <T, D> Collector<T, ?, Map<Byte, D>> byByte(ToIntFunction<? super T> key,
+                                                             Collector<? super T, ?, D> downstream) {
+        return dense(key, Byte.MIN_VALUE, Byte.MAX_VALUE, index -> (byte) (Byte.MIN_VALUE + index),
+                k -> k instanceof Byte b ? b - Byte.MIN_VALUE : -1, downstream);
+    }
+
+    public static <T> Collector<T, ?, Map<Integer, List<T>>> byInt(ToIntFunction<? super T> key, int min, int max) {
+        return byInt(key, min, max, Collectors.toList());
+    }
+
+    public static <T, D> Collector<T, ?, Map<Integer, D>> byInt(ToIntFunction<? super T> key, int min, int max,
+                                                                Collector<? super T, ?, D> downstream) {
+        return dense(key, min, max, index -> min + index,
+                k -> k instanceof Integer i ? i - min : -1, downstream);
+    }
+
+    public static <T, E extends Enum<E>> Collector<T, ?, Map<E, List<T>>> byEnum(Class<E> type,
+                                                                                Function<? super T, E> key) {
+        return byEnum(type, key, Collectors.toList());
+    }
+
+    public static <T, E extends Enum<E>, D> Collector<T, ?, Map<E, D>> byEnum(Class<E> type, Function<? super T, E> key,
+                                                                            Collector<? super T, ?, D> downstream) {
+        E[] constants = type.getEnumConstants();
+        return dense(element -> key.apply(element).ordinal(), 0, constants.length - 1, index -> constants[index],
+                k -> type.isInstance(k) ? type.cast(k).ordinal() : -1, downstream);
+    }
+
+    private static <T, K, A, D> Collector<T, ?, Map<K, D>> dense(ToIntFunction<? super T> key, int min, int max,
+                                                                IntFunction<K> keyOf, ToIntFunction<Object> indexOf,
+                                                                Collector<? super T, A, D> downstream) {
+        long keys = (long) max - min + 1;
+        if (keys < 1 || keys > MAX_KEYS) {
+            throw new IllegalArgumentException("Key range [" + min + ", " + max + "] must hold 1.." + MAX_KEYS + " keys");
+        }
+        int size = (int) keys;
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        BinaryOperator<A> combiner = downstream.combiner();
+        Function<A, D> finisher = downstream.finisher();
+
+        return Collector.<T, Object[], Map<K, D>>of(
+                () -> new Object[size],
+                (slots, element) -> {
+                    int k = key.applyAsInt(element);
+                    int index = k - min;
+                    if (index < 0 || index >= size) {
+                        throw new IllegalArgumentException("Key " + k + " is outside [" + min + ", " + max + "]");
+                    }
+                    @SuppressWarnings("unchecked")
+                    A container = (A) slots[index];
+                    if (container == null) {
+                        container = supplier.get();
+                        slots[index] = container;
+                    }
+                    accumulator.accept(container, element);
+                },
+                (left, right) -> {
+                    for (int i = 0; i < size; i++) {
+                        if (left[i] == null) {
+                            left[i] = right[i];
+                        } else if (right[i] != null) {
+                            @SuppressWarnings("unchecked")
+                            A merged = combiner.apply((A) left[i], (A) right[i]);
+                            left[i] = merged;
+                        }
+                    }
+                    return left;
+                },
+                slots -> {
+                    int present = 0;
+                    for (int i = 0; i < size; i++) {
+                        if (slots[i] != null) {
+                            @SuppressWarnings("unchecked")
+                            A container = (A) slots[i];
+                            D result = finisher.apply(container);
+                            slots[i] = result == null ? NULL_RESULT : result;
+                            present++;
+                        }
+                    }
+                    return new DenseMap<>(slots, present, keyOf, indexOf);
+                });
+    }
+
+    // Read-only map over the slots, in key order; absent keys are null slots
+    private static final class DenseMap<K, V> extends AbstractMap<K, V> {
+        private final Object[] slots;
+        private final int size;
+        private final IntFunction<K> keyOf;
+        private final ToIntFunction<Object> indexOf;
+
+        DenseMap(Object[] slots, int size, IntFunction<K> keyOf, ToIntFunction<Object> indexOf) {
+            this.slots = slots;
+            this.size = size;
+            this.keyOf = keyOf;
+            this.indexOf = indexOf;
+        }
+
+        private Object slot(Object key) {
+            int index = indexOf.applyAsInt(key);
+            return index >= 0 && index < slots.length ? slots[index] : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V value(Object slot) {
+            return slot == NULL_RESULT ? null : (V) slot;
+        }
+
+        @Override
+        public V get(Object key) {
+            return value(slot(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return slot(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < slots.length && slots[from] == null) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < slots.length;
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next;
+                            next = advance(index + 1);
+                            return new SimpleImmutableEntry<>(keyOf.apply(index), value(slots[index]));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,381 @@
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * map/filter/sum/min/max/histogram over primitive arrays, sequential or parallel, with no
+ * boxing anywhere.
+ *
+ * StreamsDemo sums Arrays.asList(1, 5, 20, ...).parallelStream(): every element is an Integer
+ * object somewhere on the heap (16 bytes for 4 bytes of data), the list holds pointers to
+ * them, and reading one means following the pointer to a likely cold cache line. Splitting
+ * an ArrayList for a parallel stream is cheap, but the per-element pipeline still goes through
+ * the generic Spliterator/Sink machinery.
+ *
+ * A pipeline here reads straight from an int[], long[] or double[]:
+ * - ofInts/ofLongs give a LongPipeline (int values are widened, so sums can't overflow an int),
+ *   ofDoubles a DoublePipeline;
+ * - map() and filter() are fused into a single loop per chunk, with the JDK's primitive
+ *   functional interfaces (LongUnaryOperator etc.), so no value is ever boxed;
+ * - parallel() splits the index range in halves with a ForkJoin task, down to chunks large
+ *   enough to amortize the task (arrays split exactly: no estimation, no copying);
+ * - summary() computes count/sum/min/max in one pass; histogram() counts values into
+ *   fixed-width buckets, one long[] per chunk, added together at the end.
+ *
+ * IntStream.of(array) is unboxed too, and about as fast on a plain sum (see
+ * PrimitivePipelineBenchmark); this class adds the histogram terminal, long arithmetic on int
+ * sources without an asLongStream() step, and chunks sized to the pool rather than to the array.
+ *
+ * Like a stream, a pipeline is meant to be built and run once: map() and filter() add to it
+ * and return the same object.
+ */
+public final class PrimitivePipeline {
+
+    // Below this many elements per chunk, splitting costs more than it saves
+    private static final int MIN_CHUNK = 1 << 13;
+
+    private PrimitivePipeline() {
+    }
+
+    public static LongPipeline ofInts(int[] values) {
+        return new LongPipeline(values, null);
+    }
+
+    public static LongPipeline ofLongs(long[] values) {
+        return new LongPipeline(null, values);
+    }
+
+    public static DoublePipeline ofDoubles(double[] values) {
+        return new DoublePipeline(values);
+    }
+
+    public static final class LongPipeline {
+        private final int[] ints;     // exactly one of ints/longs is set
+        private final long[] longs;
+        private final List<Object> stages = new ArrayList<>(); // LongUnaryOperator or LongPredicate
+        private boolean parallel;
+
+        private LongPipeline(int[] ints, long[] longs) {
+            this.ints = ints;
+            this.longs = longs;
+        }
+
+        public LongPipeline map(LongUnaryOperator mapper) {
+            stages.add(mapper);
+            return this;
+        }
+
+        public LongPipeline filter(LongPredicate predicate) {
+            stages.add(predicate);
+            return this;
+        }
+
+        public LongPipeline parallel() {
+            parallel = true;
+            return this;
+        }
+
+        public LongSummaryStatistics summary() {
+            return evaluate(LongSummaryStatistics::new, (a, b) -> {
+                a.combine(b);
+                return a;
+            });
+        }
+
+        // sum() keeps a single running value: the loop then compiles down to what a
+        // hand-written one would (vectorized, for a plain map), which it can't while also
+        // tracking min and max
+        public long sum() {
+            return evaluate(LongSum::new, LongSum::merge).sum;
+        }
+
+        public long count() {
+            return summary().getCount();
+        }
+
+        public OptionalLong min() {
+            LongSummaryStatistics summary = summary();
+            return summary.getCount() == 0 ? OptionalLong.empty() : OptionalLong.of(summary.getMin());
+        }
+
+        public OptionalLong max() {
+            LongSummaryStatistics summary = summary();
+            return summary.getCount() == 0 ? OptionalLong.empty() : OptionalLong.of(summary.getMax());
+        }
+
+        // Counts values in [from, to) into `buckets` equal-width buckets; values below `from`
+        // go into the first bucket, values at or above `to` into the last
+        public long[] histogram(long from, long to, int buckets) {
+            if (to <= from || buckets < 1) {
+                throw new IllegalArgumentException("Need from < to and buckets >= 1");
+            }
+            return evaluate(() -> new LongHistogram(from, to, buckets), LongHistogram::merge).counts;
+        }
+
+        private <A extends LongConsumer> A evaluate(Supplier<A> accumulator, BinaryOperator<A> merge) {
+            int length = ints != null ? ints.length : longs.length;
+            if (!parallel || length <= MIN_CHUNK) {
+                return evaluateRange(0, length, accumulator);
+            }
+            int chunk = chunkSize(length);
+            return ForkJoinPool.commonPool().invoke(new RangeTask<>(0, length, chunk,
+                    (from, to) -> evaluateRange(from, to, accumulator), merge));
+        }
+
+        // One fused loop over [from, to): the stages are turned into a chain of consumers
+        // once per chunk, not once per element
+        private <A extends LongConsumer> A evaluateRange(int from, int to, Supplier<A> accumulator) {
+            A result = accumulator.get();
+            LongConsumer sink = result;
+            for (int i = stages.size() - 1; i >= 0; i--) {
+                LongConsumer next = sink;
+                if (stages.get(i) instanceof LongUnaryOperator mapper) {
+                    sink = v -> next.accept(mapper.applyAsLong(v));
+                } else {
+                    LongPredicate predicate = (LongPredicate) stages.get(i);
+                    sink = v -> {
+                        if (predicate.test(v)) {
+                            next.accept(v);
+                        }
+                    };
+                }
+            }
+            if (ints != null) {
+                for (int i = from; i < to; i++) {
+                    sink.accept(ints[i]);
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    sink.accept(longs[i]);
+                }
+            }
+            return result;
+        }
+    }
+
+    public static final class DoublePipeline {
+        private final double[] doubles;
+        private final List<Object> stages = new ArrayList<>(); // DoubleUnaryOperator or DoublePredicate
+        private boolean parallel;
+
+        private DoublePipeline(double[] doubles) {
+            this.doubles = doubles;
+        }
+
+        public DoublePipeline map(DoubleUnaryOperator mapper) {
+            stages.add(mapper);
+            return this;
+        }
+
+        public DoublePipeline filter(DoublePredicate predicate) {
+            stages.add(predicate);
+            return this;
+        }
+
+        public DoublePipeline parallel() {
+            parallel = true;
+            return this;
+        }
+
+        public DoubleSummaryStatistics summary() {
+            return evaluate(DoubleSummaryStatistics::new, (a, b) -> {
+                a.combine(b);
+                return a;
+            });
+        }
+
+        // Compensated (Kahan) summation, as in DoubleStream.sum(): slower than a plain loop, and
+        // much less sensitive to how the array was split, though a parallel sum can still differ
+        // from the sequential one in the last bits
+        public double sum() {
+            return summary().getSum();
+        }
+
+        public long count() {
+            return summary().getCount();
+        }
+
+        public OptionalDouble min() {
+            DoubleSummaryStatistics summary = summary();
+            return summary.getCount() == 0 ? OptionalDouble.empty() : OptionalDouble.of(summary.getMin());
+        }
+
+        public OptionalDouble max() {
+            DoubleSummaryStatistics summary = summary();
+            return summary.getCount() == 0 ? OptionalDouble.empty() : OptionalDouble.of(summary.getMax());
+        }
+
+        // Same bucketing as LongPipeline.histogram(); NaN values are not counted
+        public long[] histogram(double from, double to, int buckets) {
+            if (!(to > from) || buckets < 1) {
+                throw new IllegalArgumentException("Need from < to and buckets >= 1");
+            }
+            return evaluate(() -> new DoubleHistogram(from, to, buckets), DoubleHistogram::merge).counts;
+        }
+
+        private <A extends DoubleConsumer> A evaluate(Supplier<A> accumulator, BinaryOperator<A> merge) {
+            if (!parallel || doubles.length <= MIN_CHUNK) {
+                return evaluateRange(0, doubles.length, accumulator);
+            }
+            int chunk = chunkSize(doubles.length);
+            return ForkJoinPool.commonPool().invoke(new RangeTask<>(0, doubles.length, chunk,
+                    (from, to) -> evaluateRange(from, to, accumulator), merge));
+        }
+
+        private <A extends DoubleConsumer> A evaluateRange(int from, int to, Supplier<A> accumulator) {
+            A result = accumulator.get();
+            DoubleConsumer sink = result;
+            for (int i = stages.size() - 1; i >= 0; i--) {
+                DoubleConsumer next = sink;
+                if (stages.get(i) instanceof DoubleUnaryOperator mapper) {
+                    sink = v -> next.accept(mapper.applyAsDouble(v));
+                } else {
+                    DoublePredicate predicate = (DoublePredicate) stages.get(i);
+                    sink = v -> {
+                        if (predicate.test(v)) {
+                            next.accept(v);
+                        }
+                    };
+                }
+            }
+            for (int i = from; i < to; i++) {
+                sink.accept(doubles[i]);
+            }
+            return result;
+        }
+    }
+
+    private static final class LongSum implements LongConsumer {
+        private long sum;
+
+        @Override
+        public void accept(long value) {
+            sum += value;
+        }
+
+        LongSum merge(LongSum other) {
+            sum += other.sum;
+            return this;
+        }
+    }
+
+    // Fixed-width bucket counts; each chunk fills its own, so no counter is ever shared.
+    // One subclass per element type: a class implementing both LongConsumer and DoubleConsumer
+    // inherits two andThen() overloads that a lambda argument can't choose between.
+    private abstract static class Histogram {
+        private final double from;
+        private final double bucketsPerUnit;
+        final long[] counts;
+
+        Histogram(double from, double to, int buckets) {
+            this.from = from;
+            this.bucketsPerUnit = buckets / (to - from);
+            this.counts = new long[buckets];
+        }
+
+        final void add(double value) {
+            double bucket = (value - from) * bucketsPerUnit;
+            if (bucket < 0) {
+                counts[0]++;
+            } else if (bucket >= counts.length) {
+                counts[counts.length - 1]++;
+            } else if (bucket == bucket) { // skips NaN
+                counts[(int) bucket]++;
+            }
+        }
+
+        final void addAll(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
+    }
+
+    private static final class LongHistogram extends Histogram implements LongConsumer {
+        LongHistogram(double from, double to, int buckets) {
+            super(from, to, buckets);
+        }
+
+        @Override
+        public void accept(long value) {
+            add(value);
+        }
+
+        LongHistogram merge(LongHistogram other) {
+            addAll(other);
+            return this;
+        }
+    }
+
+    private static final class DoubleHistogram extends Histogram implements DoubleConsumer {
+        DoubleHistogram(double from, double to, int buckets) {
+            super(from, to, buckets);
+        }
+
+        @Override
+        public void accept(double value) {
+            add(value);
+        }
+
+        DoubleHistogram merge(DoubleHistogram other) {
+            addAll(other);
+            return this;
+        }
+    }
+
+    // About 4 chunks per worker, so an unlucky slow chunk can be balanced by work stealing
+    private static int chunkSize(int length) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(MIN_CHUNK, length / (parallelism * 4));
+    }
+
+    @FunctionalInterface
+    private interface RangeEvaluator<A> {
+        A evaluate(int from, int to);
+    }
+
+    // Splits [from, to) in halves until a half is at most `chunk` long. ForkJoinTask is
+    // Serializable, but a task is only ever run in this JVM: the lambdas are not serialized.
+    private static final class RangeTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final transient RangeEvaluator<A> evaluator;
+        private final transient BinaryOperator<A> merge;
+
+        RangeTask(int from, int to, int chunk, RangeEvaluator<A> evaluator, BinaryOperator<A> merge) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.evaluator = evaluator;
+            this.merge = merge;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= chunk) {
+                return evaluator.evaluate(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask<A> left = new RangeTask<>(from, middle, chunk, evaluator, merge);
+            left.fork();
+            A right = new RangeTask<>(middle, to, chunk, evaluator, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
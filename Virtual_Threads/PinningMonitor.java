@@ -0,0 +1,193 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Records virtual-thread pinning with JFR and summarizes it per call site.
+ *
+ * A virtual thread that blocks (sleep, I/O, lock wait) normally unmounts and frees its carrier
+ * thread. In Java 21 it can't while it is inside a synchronized block or method (or a native
+ * frame): the carrier stays blocked with it, "pinned". There are only as many carriers as CPUs,
+ * so a service whose tasks block inside synchronized can't run more blocking tasks at once
+ * than it has CPUs, however many virtual threads it starts. Nothing fails; it is just slow.
+ *
+ * JFR emits a jdk.VirtualThreadPinned event for every such block (by default only those over
+ * 20 ms; this monitor records all of them), with the virtual thread's stack. The monitor
+ * groups the events by call site (the first frame outside the JDK) and reports:
+ * - how often each site pinned, for how long in total and at most;
+ * - pinned carrier time: total pinned time / (carriers x wall time). At 100% every carrier
+ *   was blocked by a pinned thread for the whole run.
+ *
+ *     PinningMonitor monitor = PinningMonitor.start();
+ *     ... run the workload ...
+ *     System.out.println(monitor.stop());
+ *
+ * The fix is to block under a java.util.concurrent lock instead (ReentrantLockDemo,
+ * LockCounterExample, CounterWithLock): a virtual thread waiting for or holding a
+ * ReentrantLock unmounts normally. Short synchronized blocks that never block (count++)
+ * pin only for nanoseconds and are harmless.
+ *
+ * Alternatively, run with -Djdk.tracePinnedThreads=full to print a stack trace each time a
+ * thread pins (noisy, but needs no code).
+ */
+public class PinningMonitor {
+
+    public record CallSite(String frame, long count, long totalNanos, long maxNanos) {
+    }
+
+    public record Report(List<CallSite> callSites, long events, long pinnedNanos,
+                         long wallNanos, int carriers) {
+
+        public double pinnedCarrierPercent() {
+            return wallNanos == 0 ? 0 : 100.0 * pinnedNanos / ((double) wallNanos * carriers);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder(String.format(
+                    "%d pinning events, %.1f ms pinned in total, pinned carrier time %.1f%% (%d carriers, %.0f ms)%n",
+                    events, pinnedNanos / 1e6, pinnedCarrierPercent(), carriers, wallNanos / 1e6));
+            for (CallSite site : callSites) {
+                out.append(String.format("  %6d x  total %9.1f ms  max %7.1f ms  at %s%n",
+                        site.count(), site.totalNanos() / 1e6, site.maxNanos() / 1e6, site.frame()));
+            }
+            return out.toString();
+        }
+    }
+
+    private final RecordingStream stream = new RecordingStream();
+    private final ReentrantLock lock = new ReentrantLock(); // events arrive on the JFR thread
+    private final Map<String, long[]> sites = new HashMap<>(); // frame -> {count, total, max}
+    private long startedAt; // when recording started; start() and stop() run on the caller's thread
+    private long events;
+    private long pinnedNanos;
+
+    private PinningMonitor() {
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+    }
+
+    public static PinningMonitor start() {
+        PinningMonitor monitor = new PinningMonitor();
+        monitor.stream.startAsync();
+        monitor.startedAt = System.nanoTime(); // after the recording has started, not at construction
+        return monitor;
+    }
+
+    // Stops recording once every event up to now has been processed, and summarizes them
+    public Report stop() {
+        // Before stream.stop(), which waits about a second for JFR to flush: that wait is not
+        // part of the measured period
+        long wallNanos = System.nanoTime() - startedAt;
+        stream.stop();
+        stream.close();
+        lock.lock();
+        try {
+            List<CallSite> callSites = new ArrayList<>();
+            sites.forEach((frame, s) -> callSites.add(new CallSite(frame, s[0], s[1], s[2])));
+            callSites.sort(Comparator.comparingLong(CallSite::totalNanos).reversed());
+            return new Report(callSites, events, pinnedNanos, wallNanos, carriers());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        String site = callSite(event);
+        lock.lock();
+        try {
+            events++;
+            pinnedNanos += nanos;
+            long[] s = sites.computeIfAbsent(site, k -> new long[3]);
+            s[0]++;
+            s[1] += nanos;
+            s[2] = Math.max(s[2], nanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The first frame that is not JDK code: the application code that blocked while pinned
+    private static String callSite(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "(no stack trace)";
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "(JDK code only)";
+    }
+
+    // Same default as the virtual-thread scheduler
+    private static int carriers() {
+        String parallelism = System.getProperty("jdk.virtualThreadScheduler.parallelism");
+        return parallelism != null ? Integer.parseInt(parallelism) : Runtime.getRuntime().availableProcessors();
+    }
+
+    // Runs `tasks` virtual threads that each block for 10 ms inside a critical section
+    private static long run(int tasks, Consumer<Runnable> criticalSection) {
+        Instant start = Instant.now();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < tasks; i++) {
+                executor.submit(() -> criticalSection.accept(() -> {
+                    try {
+                        Thread.sleep(Duration.ofMillis(10)); // simulated I/O while holding the lock
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+        }
+        return Duration.between(start, Instant.now()).toMillis();
+    }
+
+    public static void main(String[] args) {
+        // Like VirtualThreadDemo.virtualThreadsDemo, but every task holds a lock of its own
+        // (think: a synchronized method of a connection object) while it sleeps
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+
+        PinningMonitor monitor = PinningMonitor.start();
+        long synchronizedMillis = run(tasks, body -> {
+            Object connection = new Object();
+            synchronized (connection) {
+                body.run();
+            }
+        });
+        Report pinned = monitor.stop();
+
+        monitor = PinningMonitor.start();
+        long lockMillis = run(tasks, body -> {
+            ReentrantLock connection = new ReentrantLock();
+            connection.lock();
+            try {
+                body.run();
+            } finally {
+                connection.unlock();
+            }
+        });
+        Report unpinned = monitor.stop();
+
+        System.out.println("synchronized:  " + tasks + " tasks in " + synchronizedMillis + " ms");
+        System.out.print(pinned);
+        System.out.println("ReentrantLock: " + tasks + " tasks in " + lockMillis + " ms");
+        System.out.print(unpinned);
+        // With 4 carriers: ~2,500 ms and ~100% pinned carrier time with synchronized (only 4
+        // sleeps at a time), ~15 ms and no pinning events with ReentrantLock
+    }
+}
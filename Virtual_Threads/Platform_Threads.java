@@ -8,8 +8,8 @@ public class PlatformThreadExample {
             for (int i = 0; i < 100; i++) {
                 final int taskId = i;
                 executor.submit(() -> {
-                    System.out.println("Platform Thread: Task " + taskId + " running on " + 
-                                       Thread.currentThread().getName());
+                    AsyncLogger.stdout().log("Platform Thread: Task {} running on {}", taskId,
+                                             Thread.currentThread().getName());
                     try {
                         Thread.sleep(100); // Simulate some work
                     } catch (InterruptedException e) {
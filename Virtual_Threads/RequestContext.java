@@ -0,0 +1,130 @@
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-request context (request id, user) for tasks on virtual threads, bound with a
+ * ScopedValue instead of a ThreadLocal.
+ *
+ * With a ThreadLocal, every thread that ever sets the context gets its own ThreadLocalMap
+ * (a hash table, an entry, and a WeakReference per variable), and an InheritableThreadLocal
+ * copies the parent's whole map into each child thread at creation. That was negligible with
+ * 200 pooled threads; with a virtual thread per request, a million live requests carry a
+ * million maps (see ContextMemoryBenchmark).
+ *
+ * A ScopedValue binding is an immutable link in a chain that the thread shares with whoever
+ * bound it: binding costs a small object, reading walks a short chain (and is cached), and
+ * the value is gone when the bound code returns, with no remove() to forget.
+ *
+ * - bind(task) / bind(callable) capture the context current at submission, and run the task
+ *   with it bound, on whatever thread ends up running it. Nested tasks submitted from inside
+ *   that task capture it again, so the context follows the whole tree of tasks.
+ * - propagating(executor) does the same for every task submitted to an executor.
+ * - current() returns the context, or null outside of any request.
+ *
+ * On platform threads the context is kept in a ThreadLocal instead. Pool threads are few and
+ * long-lived, so the map costs nothing there, and it keeps working for code that sets the
+ * context at one point and reads it from a callback outside of the bound call.
+ *
+ * ScopedValue is a preview API in Java 21: compile with javac --release 21 --enable-preview
+ * and run with java --enable-preview. That goes against the rule FanOutScope follows (it
+ * re-implements StructuredTaskScope so that the examples stay off preview APIs); there is no
+ * non-preview equivalent of a scoped binding, so this class and ContextMemoryBenchmark are the
+ * exceptions. The preview API changed between releases: the static runWhere()/callWhere()
+ * shortcuts were removed in JDK 24 (JEP 487), so the binding is made with
+ * ScopedValue.where(key, value).run()/call(), which every release has.
+ */
+public record RequestContext(String requestId, String user) {
+
+    private static final ScopedValue<RequestContext> SCOPED = ScopedValue.newInstance();
+    private static final ThreadLocal<RequestContext> PLATFORM = new ThreadLocal<>();
+
+    public static RequestContext current() {
+        if (SCOPED.isBound()) {
+            return SCOPED.get();
+        }
+        return Thread.currentThread().isVirtual() ? null : PLATFORM.get();
+    }
+
+    // Runs task with this context bound on the current thread
+    public void run(Runnable task) {
+        if (Thread.currentThread().isVirtual()) {
+            ScopedValue.where(SCOPED, this).run(task);
+            return;
+        }
+        RequestContext previous = PLATFORM.get();
+        PLATFORM.set(this);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                PLATFORM.remove(); // leave nothing behind on a pooled thread
+            } else {
+                PLATFORM.set(previous);
+            }
+        }
+    }
+
+    public <T> T call(Callable<T> task) throws Exception {
+        if (Thread.currentThread().isVirtual()) {
+            return ScopedValue.where(SCOPED, this).call(task::call);
+        }
+        RequestContext previous = PLATFORM.get();
+        PLATFORM.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                PLATFORM.remove();
+            } else {
+                PLATFORM.set(previous);
+            }
+        }
+    }
+
+    // Captures the current context now, binds it when the task runs
+    public static Runnable bind(Runnable task) {
+        RequestContext context = current();
+        return context == null ? task : () -> context.run(task);
+    }
+
+    public static <T> Callable<T> bind(Callable<T> task) {
+        RequestContext context = current();
+        return context == null ? task : () -> context.call(task);
+    }
+
+    public static Executor propagating(Executor executor) {
+        return task -> executor.execute(bind(task));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // VirtualThreadDemo's tasks, each serving a request; every task fans out to a nested
+        // task (think: a call to another service) that logs with the same request id
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 3; i++) {
+                RequestContext request = new RequestContext("req-" + i, "user-" + (100 + i));
+                request.run(() -> executor.submit(bind(() -> {
+                    System.out.println(current() + " handled on " + Thread.currentThread());
+                    try (ExecutorService nested = Executors.newVirtualThreadPerTaskExecutor()) {
+                        nested.submit(bind(() -> {
+                            sleep(Duration.ofMillis(10));
+                            System.out.println("  nested task on " + Thread.currentThread()
+                                    + " still sees " + current().requestId());
+                        }));
+                    }
+                })));
+            }
+        }
+        System.out.println("Outside of any request: " + current()); // null
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
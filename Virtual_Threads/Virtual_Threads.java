@@ -11,7 +11,9 @@ public class VirtualThreadExample {
             for (int i = 0; i < 10000; i++) { // Can easily handle many more tasks
                 final int taskId = i;
                 executor.submit(() -> {
-                    System.out.println("Virtual Thread: Task " + taskId + " running on " + Thread.currentThread().getName());
+                    // AsyncLogger instead of System.out.println: 10,000 tasks printing at once
+                    // would all queue on the PrintStream lock (see LoggingBenchmark)
+                    AsyncLogger.stdout().log("Virtual Thread: Task {} running on {}", taskId, Thread.currentThread());
                     try {
                         Thread.sleep(100); // Simulate some work
                     } catch (InterruptedException e) {
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.concurrent.Executors;
 
@@ -34,10 +36,40 @@ class VirtualThreadDemo {
         System.out.println("Created and ran " + NUM_TASKS + " virtual threads.");
         System.out.println("Total time: " + (endTime - startTime) + "ms");
     }
+
+    // The same task, but as an open-loop load test: `rate` tasks per second for `duration`,
+    // each task's latency measured from when it should have started (see LoadGenerator).
+    // The percentile distribution (in ms) is written to histogramFile.
+    public static void loadTestDemo(double rate, Duration duration, Path histogramFile)
+            throws IOException {
+        System.out.println("\n--- Open-loop load test: " + rate + " tasks/s for " + duration.toSeconds() + " s ---");
+
+        Runnable task = () -> {
+            try {
+                Thread.sleep(Duration.ofMillis(10));
+            } catch (InterruptedException ignored) {}
+        };
+
+        LoadGenerator.Result result = new LoadGenerator(rate, duration)
+                .run(Executors.newVirtualThreadPerTaskExecutor(), task);
+        System.out.println(result);
+
+        result.latency().writePercentiles(histogramFile, 1e6);
+        System.out.println("Histogram written to " + histogramFile.toAbsolutePath());
+    }
 }
 
 public class AdvancedJavaFeatures {
-    public static void main(String[] args) throws InterruptedException {
+    // java AdvancedJavaFeatures load [tasksPerSecond] [seconds] [histogramFile] runs only the
+    // open-loop load test
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length > 0 && args[0].equals("load")) {
+            VirtualThreadDemo.loadTestDemo(
+                    args.length > 1 ? Double.parseDouble(args[1]) : 10_000,
+                    Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 10),
+                    Path.of(args.length > 3 ? args[3] : "latency.hgrm"));
+            return;
+        }
         FunctionalFeatures.lambdaAndOptionalDemo();
         StreamsDemo.streamAndParallelDemo();
         